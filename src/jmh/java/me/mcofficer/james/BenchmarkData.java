@@ -0,0 +1,115 @@
+package me.mcofficer.james;
+
+import me.mcofficer.esparser.DataFile;
+import me.mcofficer.james.gamedata.GameData;
+import me.mcofficer.james.gamedata.GameDataFetcher;
+import me.mcofficer.james.gamedata.GameDataSnapshot;
+import me.mcofficer.james.gamedata.LocalGameDataSource;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Loads the game data the benchmarks run against, without any network access.
+ * <p>
+ * By default, that's the excerpt of the game data checked in under src/jmh/resources/gamedata. Run with
+ * {@code -Pgamedata=/path/to/endless-sky} to benchmark against a full local checkout instead.
+ * <p>
+ * The snapshot (and with a checkout, its blobs) is written to a temporary directory, which {@link #close()} deletes.
+ * Call it in a {@code @TearDown}.
+ */
+public class BenchmarkData implements Closeable {
+
+    public final static String CHECKOUT_PROPERTY = "james.bench.checkout";
+
+    private final static String RESOURCE_DIR = "/gamedata/";
+    private final static String[] DATA_FILES = {"ships.txt", "outfits.txt", "governments.txt", "map.txt", "fleets.txt"};
+    private final static String IMAGE_BASE_URL = GameDataFetcher.DEFAULT_RAW_URL + "/endless-sky/endless-sky/master";
+
+    private final Path dir;
+    private final GameData gameData;
+
+    private BenchmarkData(Path dir, GameData gameData) {
+        this.dir = dir;
+        this.gameData = gameData;
+    }
+
+    /**
+     * @return The game data, backed by a snapshot in a new temporary directory.
+     * @throws IOException
+     */
+    public static BenchmarkData load() throws IOException {
+        Path dir = Files.createTempDirectory("james-bench");
+        try {
+            return new BenchmarkData(dir, load(dir));
+        }
+        catch (IOException | RuntimeException e) {
+            delete(dir);
+            throw e;
+        }
+    }
+
+    private static GameData load(Path dir) throws IOException {
+        String checkout = System.getProperty(CHECKOUT_PROPERTY, "");
+        // Only resolves the checkout once, without watching it
+        if (!checkout.isEmpty())
+            return GameData.load(dir, new LocalGameDataSource(Paths.get(checkout), dir, IMAGE_BASE_URL));
+
+        List<String> paths = new ArrayList<>();
+        List<DataFile> dataFiles = new ArrayList<>();
+        for (String name : DATA_FILES) {
+            Path path = dir.resolve(name);
+            try (InputStream in = BenchmarkData.class.getResourceAsStream(RESOURCE_DIR + name)) {
+                Files.copy(in, path);
+            }
+            paths.add(path.toString());
+            dataFiles.add(new DataFile(path.toString()));
+        }
+
+        List<String> imagePaths;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                BenchmarkData.class.getResourceAsStream(RESOURCE_DIR + "images.txt"), StandardCharsets.UTF_8))) {
+            imagePaths = reader.lines()
+                    .filter(line -> !line.isEmpty())
+                    .map(line -> IMAGE_BASE_URL + "/images/" + line.replace(" ", "%20"))
+                    .collect(Collectors.toList());
+        }
+
+        Path snapshot = dir.resolve("bench.snapshot");
+        GameDataSnapshot.write(snapshot, "bench", paths, dataFiles, imagePaths);
+        return new GameData(GameDataSnapshot.open(snapshot));
+    }
+
+    public GameData getGameData() {
+        return gameData;
+    }
+
+    /**
+     * Deletes the temporary directory. The snapshot stays readable while it's mapped (except on Windows, where it can't
+     * be deleted yet).
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        delete(dir);
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator)
+                Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package me.mcofficer.james;
+
+import me.mcofficer.james.gamedata.GameData;
+import me.mcofficer.james.tools.AssetListings;
+import me.mcofficer.james.tools.Lookups;
+import me.mcofficer.james.tools.search.QueryCache;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link Util#sendInChunks(java.util.function.Consumer, List, String, String)}, with the chunks going
+ * into a {@link Blackhole} instead of a channel.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UtilBenchmark {
+
+    /** The number of root nodes to send: a single message, and several. */
+    @Param({"1", "40"})
+    public int nodes;
+
+    private BenchmarkData data;
+    private List<String> lines;
+
+    @Setup
+    public void setUp() throws IOException {
+        data = BenchmarkData.load();
+        GameData gameData = data.getGameData();
+        Lookups lookups = new Lookups(gameData, Arrays.asList("ship", "outfit"), new QueryCache(0), new AssetListings());
+        lines = new ArrayList<>();
+        for (int id = 0; id < Math.min(nodes, gameData.getRootCount()); id++)
+            // Keeps the line breaks, like the lines the commands send
+            lines.addAll(Arrays.asList(lookups.getNodeAsText(gameData.getNode(id)).split("(?<=\n)")));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        data.close();
+    }
+
+    @Benchmark
+    public void sendInChunks(Blackhole blackhole) {
+        Util.sendInChunks(blackhole::consume, lines, "```", "```");
+    }
+}
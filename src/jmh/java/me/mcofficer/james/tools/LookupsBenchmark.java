@@ -0,0 +1,69 @@
+package me.mcofficer.james.tools;
+
+import me.mcofficer.james.BenchmarkData;
+import me.mcofficer.james.gamedata.GameData;
+import me.mcofficer.james.gamedata.NodeView;
+import me.mcofficer.james.tools.search.QueryCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the hot paths of {@link Lookups}, except searching, see {@link SearchBenchmark}. Run with
+ * {@code gradle jmh}, which also attaches the GC profiler to report allocation rates.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupsBenchmark {
+
+    private BenchmarkData data;
+    private Lookups lookups;
+    private NodeView ship;
+    private NodeView government;
+
+    @Setup
+    public void setUp() throws IOException {
+        data = BenchmarkData.load();
+        GameData gameData = data.getGameData();
+        lookups = new Lookups(gameData, Arrays.asList("ship", "outfit"), new QueryCache(500), new AssetListings());
+        ship = lookups.getNodesByString("ship:Bactrian").get(0);
+        government = lookups.getNodesByString("government:Republic").get(0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        data.close();
+    }
+
+    @Benchmark
+    public String getImageUrl() {
+        return lookups.getImageUrl(ship, true);
+    }
+
+    @Benchmark
+    public String getNodeAsText() {
+        return lookups.getNodeAsText(ship);
+    }
+
+    @Benchmark
+    public String getNodeAsTextTruncated() {
+        return lookups.getNodeAsText(ship, 500);
+    }
+
+    @Benchmark
+    public List<NodeView> getGovernmentsBySwizzle() {
+        return lookups.getGovernmentsBySwizzle(0);
+    }
+
+    @Benchmark
+    public List<NodeView> getReferencingNodes() {
+        return lookups.getReferencingNodes(government);
+    }
+}
@@ -0,0 +1,61 @@
+package me.mcofficer.james.tools;
+
+import me.mcofficer.james.BenchmarkData;
+import me.mcofficer.james.gamedata.GameData;
+import me.mcofficer.james.gamedata.NodeView;
+import me.mcofficer.james.tools.search.QueryCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link Lookups#getNodesByString(String)}, with a cold and a warm {@link QueryCache}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    /** Short and long queries, exact names, prefixes, typos and type-qualified ones. */
+    @Param({"fal", "Falcon", "bactrain", "heavy laser turret", "outfit:\"X5700 Ion Thruster\"",
+            "the missile launcher of the meteor"})
+    public String query;
+
+    private BenchmarkData data;
+    private Lookups lookups;
+    /** Caches nothing, so every query is searched. */
+    private Lookups uncachedLookups;
+
+    @Setup
+    public void setUp() throws IOException {
+        data = BenchmarkData.load();
+        GameData gameData = data.getGameData();
+        List<String> searchPriority = Arrays.asList("ship", "outfit");
+        AssetListings assetListings = new AssetListings();
+        lookups = new Lookups(gameData, searchPriority, new QueryCache(500), assetListings);
+        uncachedLookups = new Lookups(gameData, searchPriority, new QueryCache(0), assetListings);
+        // Fills the cache
+        lookups.getNodesByString(query);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        data.close();
+    }
+
+    @Benchmark
+    public List<NodeView> getNodesByStringCold() {
+        return uncachedLookups.getNodesByString(query);
+    }
+
+    @Benchmark
+    public List<NodeView> getNodesByStringWarm() {
+        return lookups.getNodesByString(query);
+    }
+}
@@ -3,7 +3,6 @@ package me.mcofficer.james;
 import com.jagrosh.jdautilities.command.Command;
 import com.jagrosh.jdautilities.command.CommandClientBuilder;
 import com.jagrosh.jdautilities.commons.waiter.EventWaiter;
-import me.mcofficer.esparser.DataFile;
 import me.mcofficer.james.audio.Audio;
 import me.mcofficer.james.audio.Playlists;
 import me.mcofficer.james.commands.*;
@@ -16,7 +15,15 @@ import me.mcofficer.james.commands.info.*;
 import me.mcofficer.james.commands.lookup.*;
 import me.mcofficer.james.commands.misc.Translate;
 import me.mcofficer.james.commands.moderation.*;
+import me.mcofficer.james.gamedata.GameDataFetcher;
+import me.mcofficer.james.gamedata.GameDataSource;
+import me.mcofficer.james.gamedata.LocalGameDataSource;
+import me.mcofficer.james.tools.AssetListings;
+import me.mcofficer.james.tools.HiDpiProber;
 import me.mcofficer.james.tools.Lookups;
+import me.mcofficer.james.tools.LookupsReloader;
+import me.mcofficer.james.tools.search.QueryCache;
+import me.mcofficer.james.tools.search.TextIndex;
 import net.dv8tion.jda.core.AccountType;
 import net.dv8tion.jda.core.JDA;
 import net.dv8tion.jda.core.JDABuilder;
@@ -25,11 +32,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.security.auth.login.LoginException;
-import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 public class James {
 
@@ -83,22 +93,37 @@ public class James {
     }
 
     private void addCommands(CommandClientBuilder builder, String githubToken) throws IOException {
-        log.info("Downloading game data...");
-        ArrayList<File> paths = Util.fetchGameData(githubToken);
-        ArrayList<DataFile> dataFiles = new ArrayList<>();
-        for (File path : paths)
-            dataFiles.add(new DataFile(path.getAbsolutePath()));
-
-        log.info("Fetching image paths...");
-        ArrayList<String> imagePaths = Util.get1xImagePaths(githubToken);
-        Lookups lookups = new Lookups(dataFiles, imagePaths);
-        log.info("Lookups instantiated");
-
-        log.info("Starting background thread to fetch hdpi image paths...");
-        new Thread(() -> {
-            lookups.setImagePaths(Util.get2xImagePaths(imagePaths));
-            log.info("Hdpi image paths fetched successfully.");
-        }).start();
+        Path gameDataDir = Paths.get("data/gamedata");
+        String rawUrl = cfg.getProperty("githubRawUrl", GameDataFetcher.DEFAULT_RAW_URL);
+        String checkout = cfg.getProperty("gameDataPath", "");
+        LocalGameDataSource localSource = null;
+        GameDataSource source;
+        if (checkout.isEmpty())
+            source = new GameDataFetcher(cfg.getProperty("githubApiUrl", GameDataFetcher.DEFAULT_API_URL), rawUrl,
+                    githubToken, gameDataDir, Integer.parseInt(cfg.getProperty("fetchParallelism", "8")));
+        else
+            source = localSource = new LocalGameDataSource(Paths.get(checkout), gameDataDir,
+                    rawUrl + "/endless-sky/endless-sky/master");
+        AssetListings assetListings = new AssetListings();
+        assetListings.start();
+        List<String> searchPriority = Arrays.asList(cfg.getProperty("searchPriority", "ship,outfit").split(","));
+        QueryCache queryCache = new QueryCache(Integer.parseInt(cfg.getProperty("queryCacheSize", "500")));
+        TextIndex.SegmentCache segmentCache = new TextIndex.SegmentCache();
+        LookupsReloader lookups = new LookupsReloader(gameDataDir, source,
+                gameData -> new Lookups(gameData, searchPriority, queryCache, assetListings, segmentCache));
+
+        HiDpiProber hiDpiProber = new HiDpiProber(gameDataDir.resolve("hidpi.cache"),
+                Integer.parseInt(cfg.getProperty("probeParallelism", "16")));
+        lookups.addListener(next -> hiDpiProber.start(next.getImagePaths(), next::upgradeImage));
+        lookups.addListener(next -> queryCache.retainVersion(next.getDataVersion()));
+
+        lookups.reload();
+        log.info("Lookups ready");
+        long reloadInterval = Long.parseLong(cfg.getProperty("reloadInterval", "0"));
+        if (localSource != null)
+            localSource.watch(lookups::tryReload);
+        else if (reloadInterval > 0)
+            lookups.start(reloadInterval, TimeUnit.MINUTES);
 
         Audio audio = new Audio();
         Playlists  playlists= new Playlists();
@@ -107,13 +132,15 @@ public class James {
         String[] ontopicCategories = cfg.getProperty("ontopicCategories").split(",");
 
         builder.addCommands(
-                new Eval(lookups, playlists, cfg),
+                new Eval(lookups, playlists, cfg), new Reload(lookups),
                 new Play(audio), new Stop(audio), new Skip(audio), new Shuffle(audio), new Current(audio),
                 new Pause(audio), new Unpause(audio), new Queue(audio), new Playlist(audio, playlists),
                 new SwizzleImage(), new Template(),
                 new Cat(), new Dog(), new Birb(), new Translate(),
                 new Info(githubToken), new Ping(),
                 new Issue(), new Commit(), new Showdata(lookups), new Showimage(lookups), new Show(lookups), new Lookup(lookups), new Swizzle(lookups),
+                new UsedBy(lookups), new Top(lookups), new Stats(lookups), new Diff(lookups, gameDataDir),
+                new Search(lookups),
                 new Purge(), new Optin(optinRoles, cfg.getProperty("timeoutRole")), new Optout(optinRoles),
                 new Timeout(cfg.getProperty("timeoutRole")), new Activity(ontopicCategories), new Move()
         );
@@ -2,12 +2,10 @@ package me.mcofficer.james;
 
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jdautilities.menu.OrderedMenu;
-import me.mcofficer.esparser.DataNode;
-import me.mcofficer.esparser.Sources;
+import me.mcofficer.james.gamedata.NodeView;
+import me.mcofficer.james.tools.MessagePacker;
 import net.dv8tion.jda.core.entities.*;
 import net.dv8tion.jda.core.managers.GuildController;
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,14 +14,11 @@ import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class Util {
 
@@ -39,9 +34,21 @@ public class Util {
      * @return The HTTP Status Code.
      */
     public static int getHttpStatus(String url) {
+        return getHttpStatus(url, 0);
+    }
+
+    /**
+     * Like {@link #getHttpStatus(String)}, but gives up (returning 0) if connecting or reading takes longer than timeout.
+     * @param url The url to check.
+     * @param timeout The connect and read timeout in milliseconds, 0 means infinite.
+     * @return The HTTP Status Code.
+     */
+    public static int getHttpStatus(String url, int timeout) {
         try {
             URL u = new URL(url);
             HttpURLConnection connection = (HttpURLConnection) u.openConnection();
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
             connection.setRequestMethod("HEAD");
             connection.setRequestProperty("User-Agent", "MarioB(r)owser4.2");
             connection.connect();
@@ -151,24 +158,12 @@ public class Util {
         return add;
     }
 
-    /** Downloads a File and saves it in the target dir.
-     * @param url
-     * @param targetDir
-     * @throws IOException
-     */
-    public static void downloadFile(String url, Path targetDir) throws IOException {
-        String filename = url.substring(url.lastIndexOf('/'));
-        ReadableByteChannel channel = Channels.newChannel(new URL(url).openStream());
-        FileOutputStream outputStream = new FileOutputStream(targetDir + filename);
-        outputStream.getChannel().transferFrom(channel, 0, Long.MAX_VALUE);
-    }
-
     /** Creates an OrderedMenu and sends it to the event's channel.
      * @param matches The Nodes that should be displayed
      * @param event The triggering event.
      * @param selection A BiConsumer that gets called once the user makes a selection.
      */
-    public static void displayNodeSearchResults(List<DataNode> matches, CommandEvent event, BiConsumer<Message, Integer> selection) {
+    public static void displayNodeSearchResults(List<NodeView> matches, CommandEvent event, BiConsumer<Message, Integer> selection) {
         OrderedMenu.Builder builder = new OrderedMenu.Builder()
                 .setEventWaiter(James.eventWaiter)
                 .setSelection(selection)
@@ -180,72 +175,6 @@ public class Util {
         builder.build().display(event.getChannel());
     }
 
-    /** Saves the ES data files and returns the temporary directory they were saved in. Should be removed afterwards.
-     * @param githubToken
-     * @return
-     * @throws IOException
-     */
-    public static ArrayList<File> fetchGameData(String githubToken) throws IOException {
-        Path temp = Files.createTempDirectory("james");
-        File data = new File(temp.toAbsolutePath() + "/data/");
-        data.mkdir();
-
-        JSONArray json = new JSONArray(Util.getContentFromUrl("https://api.github.com/repos/endless-sky/endless-sky/contents/data?ref=master&access_token=" + githubToken));
-        for (Object o : json) {
-            JSONObject j = (JSONObject) o;
-            Util.downloadFile(j.getString("download_url"), data.toPath());
-        }
-        ArrayList<File> sources = Sources.getSources(temp, null);
-        Files.walk(temp)
-                .sorted(Comparator.reverseOrder())
-                .map(Path::toFile)
-                .forEach(File::deleteOnExit);
-        return sources;
-    }
-
-    /** Compiles a list of valid image URLs from the ES repository.
-     * @param githubToken
-     * @return A List of image URLs. Could theoretically be empty, if GitHub is down.
-     */
-    public static ArrayList<String> get1xImagePaths(String githubToken) {
-        return checkImageDir("https://api.github.com/repos/endless-sky/endless-sky/contents/images?ref=master", githubToken);
-    }
-
-    /** Iterates recursively through a directory of the GitHub API and compiles a List of image paths. Only for use in {@link #get1xImagePaths(String)}.
-     * @param path
-     * @param githubToken
-     * @return
-     */
-    private static ArrayList<String> checkImageDir(String path, String githubToken) {
-        JSONArray json = new JSONArray(Util.getContentFromUrl(path + "&access_token=" + githubToken));
-        ArrayList<String> arrayList = new ArrayList<>();
-        for (Object o : json) {
-            JSONObject j = (JSONObject) o;
-            if (j.getString("type").equals("dir"))
-                arrayList.addAll(checkImageDir(j.getString("url"), githubToken));
-            else
-                arrayList.add(j.getString("download_url"));
-        }
-        return arrayList;
-    }
-
-    /** Takes a list of image paths and replaces them with paths to the hdpi repository where applicable. Takes several minutes, run async!
-     * @param imagePaths
-     * @return A List of Image Paths, containing hdpi paths where possible.
-     */
-    public static ArrayList<String> get2xImagePaths(ArrayList<String> imagePaths) {
-        ArrayList<String> revisedPaths = new ArrayList<>();
-        for (String path : imagePaths) {
-            String revised = path.replace("endless-sky/master", "endless-sky-high-dpi/master")
-                    .replace(".png", "@2x.png");
-            if (getHttpStatus(revised) == 200)
-                revisedPaths.add(revised);
-            else
-                revisedPaths.add(path);
-        }
-        return revisedPaths;
-    }
-
     /**
      * Convenience method for {@link #sendInChunks(TextChannel, List, String, String)},
      * accepts Arrays of Strings and assumes triple backticks as footer & header.
@@ -258,35 +187,29 @@ public class Util {
 
     /**
      * Utility function that will concatenate a list of strings into valid
-     * Discord messages.
+     * Discord messages. Strings longer than a whole message are split.
      * @param channel   The desired output channel
      * @param output    The list of strings to write.
      * @param header    A string that should prefix every chunk.
      * @param footer    A string that should end every chunk.
+     * @see MessagePacker
      */
     public static void sendInChunks(TextChannel channel, List<String> output, String header, String footer){
-        if(output.isEmpty())
-            return;
+        sendInChunks(message -> channel.sendMessage(message).queue(), output, header, footer);
+    }
 
-        StringBuilder chunk = new StringBuilder(header);
-        int chunkSize = chunk.length() + footer.length();
-        final int sizeLimit = 1990;
-        if(chunkSize > sizeLimit){
-            System.out.println("Cannot ever print: header + footer too large.");
-            return;
-        }
-        for(String str : output){
-            if(chunkSize + str.length() <= sizeLimit)
-                chunk.append(str);
-            else{
-                channel.sendMessage(chunk.append(footer).toString()).queue();
-                chunk = new StringBuilder(header + str);
-            }
-            chunkSize = chunk.length() + footer.length();
-        }
-        // Write the final chunk.
-        if(chunk.length() > header.length())
-            channel.sendMessage(chunk.append(footer).toString()).queue();
+    /**
+     * Like {@link #sendInChunks(TextChannel, List, String, String)}, but hands the chunks to sink instead of sending them.
+     * @param sink      Receives every chunk.
+     * @param output    The list of strings to write.
+     * @param header    A string that should prefix every chunk.
+     * @param footer    A string that should end every chunk.
+     */
+    public static void sendInChunks(Consumer<String> sink, List<String> output, String header, String footer){
+        MessagePacker packer = new MessagePacker(sink, (data, name) -> {}, header, footer, 0, null);
+        for(String str : output)
+            packer.append(str);
+        packer.send();
     }
 
 
@@ -8,14 +8,15 @@ import me.mcofficer.james.tools.Lookups;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import java.util.Properties;
+import java.util.function.Supplier;
 
 public class Eval extends Command {
 
-    private final Lookups lookups;
+    private final Supplier<Lookups> lookups;
     private final Playlists playlists;
     private final Properties config;
 
-    public Eval(Lookups lookups, Playlists playlists, Properties config) {
+    public Eval(Supplier<Lookups> lookups, Playlists playlists, Properties config) {
         name = "eval";
         arguments = "code";
         hidden = true;
@@ -32,7 +33,7 @@ public class Eval extends Command {
         engine.put("event", event);
         engine.put("guild", event.getGuild());
         engine.put("channel", event.getChannel());
-        engine.put("lookups", lookups);
+        engine.put("lookups", lookups.get());
         engine.put("playlists", playlists);
         engine.put("config", config);
 
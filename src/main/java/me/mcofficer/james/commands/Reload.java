@@ -0,0 +1,38 @@
+package me.mcofficer.james.commands;
+
+import com.jagrosh.jdautilities.command.Command;
+import com.jagrosh.jdautilities.command.CommandEvent;
+import me.mcofficer.james.tools.LookupsReloader;
+
+public class Reload extends Command {
+
+    private final LookupsReloader reloader;
+
+    public Reload(LookupsReloader reloader) {
+        name = "reload";
+        help = "Reloads the game data if it changed upstream.";
+        hidden = true;
+        ownerCommand = true;
+        this.reloader = reloader;
+    }
+
+    @Override
+    protected void execute(CommandEvent event) {
+        String oldVersion = reloader.get().getDataVersion();
+        event.reply("Checking for new game data...");
+        new Thread(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                if (reloader.reload())
+                    event.reply(String.format("Reloaded game data `%s` -> `%s` in %dms.", oldVersion,
+                            reloader.get().getDataVersion(), System.currentTimeMillis() - start));
+                else
+                    event.reply("Game data `" + oldVersion + "` is already up to date.");
+            }
+            catch (Exception e) {
+                e.printStackTrace();
+                event.reply("Failed to reload the game data:\n```\n" + e + "\n```");
+            }
+        }).start();
+    }
+}
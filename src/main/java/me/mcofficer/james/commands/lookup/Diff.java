@@ -0,0 +1,99 @@
+package me.mcofficer.james.commands.lookup;
+
+import com.jagrosh.jdautilities.command.Command;
+import com.jagrosh.jdautilities.command.CommandEvent;
+import me.mcofficer.james.James;
+import me.mcofficer.james.gamedata.GameData;
+import me.mcofficer.james.tools.DataDiff;
+import me.mcofficer.james.tools.Lookups;
+import me.mcofficer.james.tools.MessagePacker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class Diff extends Command {
+
+    /** Longer diffs are sent as a file attachment. */
+    private final static int MAX_MESSAGES = 5;
+
+    private final Supplier<Lookups> lookups;
+    private final Path gameDataDir;
+
+    /**
+     * @param lookups
+     * @param gameDataDir The directory game data snapshots are kept in.
+     */
+    public Diff(Supplier<Lookups> lookups, Path gameDataDir) {
+        name = "diff";
+        help = "Shows what changed between two cached versions of the game data, optionally only for <query>. " +
+                "Versions may be abbreviated, \"current\" is the one in use. Without arguments, lists the cached versions.";
+        arguments = "<version-a> <version-b> [query]";
+        category = James.lookup;
+        this.lookups = lookups;
+        this.gameDataDir = gameDataDir;
+    }
+
+    @Override
+    protected void execute(CommandEvent event) {
+        Lookups lookups = this.lookups.get();
+        String[] args = event.getArgs().trim().split("\\s+", 3);
+        if (args.length < 2) {
+            listVersions(event, lookups);
+            return;
+        }
+
+        GameData before;
+        GameData after;
+        try {
+            before = open(args[0], lookups);
+            after = open(args[1], lookups);
+        }
+        catch (IOException e) {
+            event.reply("Can't open `" + (e.getMessage() == null ? "" : e.getMessage()) + "`. " +
+                    "Use `" + name + "` without arguments to list the cached versions.");
+            return;
+        }
+
+        String query = args.length > 2 ? args[2] : null;
+        DataDiff diff = new DataDiff(before, after);
+        MessagePacker packer = new MessagePacker(event.getTextChannel(), "```diff", "```", MAX_MESSAGES,
+                before.getVersion() + "_" + after.getVersion() + ".diff");
+        try {
+            if (!diff.write(query, packer)) {
+                event.reply(query == null ? "No changes." : "No changes for `" + query + "`.");
+                return;
+            }
+        }
+        catch (IOException e) { // MessagePacker doesn't throw
+            throw new UncheckedIOException(e);
+        }
+        event.reply(String.format("`%s` \u2192 `%s`: %d added, %d removed, %d changed", before.getVersion(),
+                after.getVersion(), diff.getAdded(), diff.getRemoved(), diff.getChanged()));
+        packer.send();
+    }
+
+    private GameData open(String version, Lookups lookups) throws IOException {
+        if (version.equalsIgnoreCase("current"))
+            return lookups.getGameData();
+        return GameData.openSnapshot(gameDataDir, version);
+    }
+
+    private void listVersions(CommandEvent event, Lookups lookups) {
+        List<String> versions;
+        try {
+            versions = GameData.listSnapshots(gameDataDir);
+        }
+        catch (IOException e) {
+            event.reply("Failed to list the cached versions: " + e.getMessage());
+            return;
+        }
+        StringBuilder sb = new StringBuilder("**Cached game data versions, most recent first:**");
+        for (String version : versions)
+            sb.append("\n\u2022 `").append(version).append('`')
+                    .append(version.equals(lookups.getDataVersion()) ? " (current)" : "");
+        event.reply(sb.toString());
+    }
+}
@@ -2,41 +2,43 @@ package me.mcofficer.james.commands.lookup;
 
 import com.jagrosh.jdautilities.command.Command;
 import com.jagrosh.jdautilities.command.CommandEvent;
-import me.mcofficer.esparser.DataNode;
 import me.mcofficer.james.James;
 import me.mcofficer.james.Util;
+import me.mcofficer.james.gamedata.NodeView;
 import me.mcofficer.james.tools.Lookups;
 import net.dv8tion.jda.core.EmbedBuilder;
 import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.entities.MessageEmbed;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 public class Lookup extends Command {
 
-    private final Lookups lookups;
+    private final Supplier<Lookups> lookups;
 
-    public Lookup(Lookups lookups) {
+    public Lookup(Supplier<Lookups> lookups) {
         name = "lookup";
         help = "Outputs the image and description of <query>.";
-        arguments = "<query>";
+        arguments = "[type:]<query>";
         category = James.lookup;
         this.lookups = lookups;
     }
 
     @Override
     protected void execute(CommandEvent event) {
-        List<DataNode> matches = lookups.getNodesByString(event.getArgs());
+        Lookups lookups = this.lookups.get();
+        List<NodeView> matches = lookups.getNodesByString(event.getArgs());
 
         if (matches.size() < 1)
             event.reply("Found no matches for `" + event.getArgs() + "`!");
         else if (matches.size() == 1)
-            event.reply(createLookupMessage(matches.get(0), event.getGuild()));
+            event.reply(createLookupMessage(lookups, matches.get(0), event.getGuild()));
         else
-            Util.displayNodeSearchResults(matches, event, (message, integer) -> event.reply(createLookupMessage(matches.get(integer - 1), event.getGuild())));
+            Util.displayNodeSearchResults(matches, event, (message, integer) -> event.reply(createLookupMessage(lookups, matches.get(integer - 1), event.getGuild())));
     }
 
-    private MessageEmbed createLookupMessage(DataNode node, Guild guild) {
+    static MessageEmbed createLookupMessage(Lookups lookups, NodeView node, Guild guild) {
         String[] lookup = lookups.getLookupByNode(node);
 
         EmbedBuilder embedBuilder = new EmbedBuilder()
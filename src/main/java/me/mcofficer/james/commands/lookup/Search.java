@@ -0,0 +1,45 @@
+package me.mcofficer.james.commands.lookup;
+
+import com.jagrosh.jdautilities.command.Command;
+import com.jagrosh.jdautilities.command.CommandEvent;
+import me.mcofficer.james.James;
+import me.mcofficer.james.Util;
+import me.mcofficer.james.gamedata.NodeView;
+import me.mcofficer.james.tools.Lookups;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+public class Search extends Command {
+
+    private final static String ALL_TEXT_FLAG = "--all";
+
+    private final Supplier<Lookups> lookups;
+
+    public Search(Supplier<Lookups> lookups) {
+        name = "search";
+        help = "Searches the descriptions of everything for <words>, best match first. " +
+                "With " + ALL_TEXT_FLAG + ", searches all of their text instead, e.g. outfits, ships and conversations.";
+        arguments = "[" + ALL_TEXT_FLAG + "] [type:]<words>";
+        category = James.lookup;
+        this.lookups = lookups;
+    }
+
+    @Override
+    protected void execute(CommandEvent event) {
+        Lookups lookups = this.lookups.get();
+        String query = event.getArgs().trim();
+        boolean allText = query.startsWith(ALL_TEXT_FLAG);
+        if (allText)
+            query = query.substring(ALL_TEXT_FLAG.length()).trim();
+        List<NodeView> matches = lookups.getNodesByText(query, allText);
+
+        if (matches.size() < 1)
+            event.reply("Found no matches for `" + query + "`!");
+        else if (matches.size() == 1)
+            event.reply(Lookup.createLookupMessage(lookups, matches.get(0), event.getGuild()));
+        else
+            Util.displayNodeSearchResults(matches, event, (message, integer) ->
+                    event.reply(Lookup.createLookupMessage(lookups, matches.get(integer - 1), event.getGuild())));
+    }
+}
@@ -2,9 +2,9 @@ package me.mcofficer.james.commands.lookup;
 
 import com.jagrosh.jdautilities.command.Command;
 import com.jagrosh.jdautilities.command.CommandEvent;
-import me.mcofficer.esparser.DataNode;
 import me.mcofficer.james.James;
 import me.mcofficer.james.Util;
+import me.mcofficer.james.gamedata.NodeView;
 import me.mcofficer.james.tools.Lookups;
 import net.dv8tion.jda.core.EmbedBuilder;
 import net.dv8tion.jda.core.MessageBuilder;
@@ -12,39 +12,44 @@ import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.entities.Message;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 public class Show extends Command {
 
-    private final Lookups lookups;
+    /** Leaves room for the code block around the text, within Discord's message length limit. */
+    private final static int MAX_TEXT_LENGTH = 1990 - 6;
 
-    public Show(Lookups lookups) {
+    private final Supplier<Lookups> lookups;
+
+    public Show(Supplier<Lookups> lookups) {
         name = "show";
         help = "Outputs the image and data associated with <query>.";
-        arguments = "<query>";
+        arguments = "[type:]<query>";
         category = James.lookup;
         this.lookups = lookups;
     }
 
     @Override
     protected void execute(CommandEvent event) {
-    List<DataNode> matches = lookups.getNodesByString(event.getArgs());
+    Lookups lookups = this.lookups.get();
+    List<NodeView> matches = lookups.getNodesByString(event.getArgs());
 
     if (matches.size() < 1)
         event.reply("Found no matches for `" + event.getArgs() + "`!");
     else if (matches.size() == 1)
-        event.reply(createShowMessage(matches.get(0), event.getGuild()));
+        event.reply(createShowMessage(lookups, matches.get(0), event.getGuild()));
     else
-        Util.displayNodeSearchResults(matches, event, (((message, integer) -> event.reply(createShowMessage(matches.get(integer - 1), event.getGuild())))));
+        Util.displayNodeSearchResults(matches, event, (((message, integer) -> event.reply(createShowMessage(lookups, matches.get(integer - 1), event.getGuild())))));
     }
 
-    private Message createShowMessage(DataNode node, Guild guild) {
+    private Message createShowMessage(Lookups lookups, NodeView node, Guild guild) {
         EmbedBuilder embedBuilder = new EmbedBuilder()
                 .setColor(guild.getSelfMember().getColor())
                 .setImage(lookups.getImageUrl(node, false));
         return new MessageBuilder()
                 .setEmbed(embedBuilder.isEmpty() ? null : embedBuilder.build()) // if no image was found, the embed builder cannot be built
                 .append("```")
-                .append(lookups.getNodeAsText(node))
+                .append(lookups.getNodeAsText(node, MAX_TEXT_LENGTH))
                 .append("```")
                 .build();
     }
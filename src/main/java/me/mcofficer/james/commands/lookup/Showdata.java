@@ -2,37 +2,62 @@ package me.mcofficer.james.commands.lookup;
 
 import com.jagrosh.jdautilities.command.Command;
 import com.jagrosh.jdautilities.command.CommandEvent;
-import me.mcofficer.esparser.DataNode;
 import me.mcofficer.james.James;
 import me.mcofficer.james.Util;
+import me.mcofficer.james.gamedata.NodeView;
 import me.mcofficer.james.tools.Lookups;
+import me.mcofficer.james.tools.MessagePacker;
+import me.mcofficer.james.tools.NodeRenderer;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class Showdata extends Command {
 
-    private final Lookups lookups;
+    /** Longer nodes are sent as a file attachment. */
+    private final static int MAX_MESSAGES = 5;
 
-    public Showdata(Lookups lookups) {
+    private final Supplier<Lookups> lookups;
+
+    public Showdata(Supplier<Lookups> lookups) {
         name = "showdata";
         help = "Outputs the data associated with <query>.";
-        arguments = "<query>";
+        arguments = "[type:]<query>";
         category = James.lookup;
         this.lookups = lookups;
     }
 
     @Override
     protected void execute(CommandEvent event) {
-        List<DataNode> matches = lookups.getNodesByString(event.getArgs());
+        Lookups lookups = this.lookups.get();
+        List<NodeView> matches = lookups.getNodesByString(event.getArgs());
 
         if (matches.size() < 1)
             event.reply("Found no matches for `" + event.getArgs() + "`!");
         else if (matches.size() == 1)
-            Util.sendInChunks(event.getTextChannel(), lookups.getNodeAsText(matches.get(0)).split("(?=\n)"));
+            sendNode(event, matches.get(0));
         else
             Util.displayNodeSearchResults(matches, event, ((message, integer) ->
-                    Util.sendInChunks(event.getTextChannel(), lookups.getNodeAsText(matches.get(integer - 1)).split("(?=\n)"))));
+                    sendNode(event, matches.get(integer - 1))));
+    }
+
+    /** Streams the rendered node into as few messages as possible, or into a file if it's too long for that.
+     * @param event
+     * @param node
+     */
+    private void sendNode(CommandEvent event, NodeView node) {
+        String fileName = node.toString().replaceAll("[^A-Za-z0-9_-]+", "_") + ".txt";
+        MessagePacker packer = new MessagePacker(event.getTextChannel(), "```", "```", MAX_MESSAGES, fileName);
+        try {
+            NodeRenderer.render(node, packer, Integer.MAX_VALUE);
+        }
+        catch (IOException e) { // MessagePacker doesn't throw
+            throw new UncheckedIOException(e);
+        }
+        packer.send();
     }
 }
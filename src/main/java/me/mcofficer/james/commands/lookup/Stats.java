@@ -0,0 +1,68 @@
+package me.mcofficer.james.commands.lookup;
+
+import com.jagrosh.jdautilities.command.Command;
+import com.jagrosh.jdautilities.command.CommandEvent;
+import me.mcofficer.james.James;
+import me.mcofficer.james.Util;
+import me.mcofficer.james.gamedata.NodeView;
+import me.mcofficer.james.tools.LoadoutStats;
+import me.mcofficer.james.tools.Lookups;
+import me.mcofficer.james.tools.MessagePacker;
+
+import java.text.DecimalFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class Stats extends Command {
+
+    private final Supplier<Lookups> lookups;
+
+    public Stats(Supplier<Lookups> lookups) {
+        name = "stats";
+        help = "Outputs the stats of the ship <query> including its outfits, like top speed, acceleration and turning.";
+        arguments = "<query>";
+        category = James.lookup;
+        this.lookups = lookups;
+    }
+
+    @Override
+    protected void execute(CommandEvent event) {
+        Lookups lookups = this.lookups.get();
+        String query = event.getArgs().contains(":") ? event.getArgs() : "ship:" + event.getArgs();
+        List<NodeView> matches = lookups.getNodesByString(query);
+
+        if (matches.size() < 1)
+            event.reply("Found no matches for `" + event.getArgs() + "`!");
+        else if (matches.size() == 1)
+            sendStats(event, lookups, matches.get(0));
+        else
+            Util.displayNodeSearchResults(matches, event, ((message, integer) ->
+                    sendStats(event, lookups, matches.get(integer - 1))));
+    }
+
+    private void sendStats(CommandEvent event, Lookups lookups, NodeView node) {
+        LoadoutStats.Stats stats = lookups.getShipStats(node);
+        if (stats == null) {
+            event.reply("`" + node + "` is not a ship!");
+            return;
+        }
+
+        DecimalFormat format = new DecimalFormat("#,##0.##");
+        MessagePacker packer = new MessagePacker(event.getTextChannel(), "```", "```");
+        packer.append(node.toString()).append('\n');
+        packer.append(String.format("\ntop speed: %s", formatDerived(format, stats.getTopSpeed())));
+        packer.append(String.format("\nacceleration: %s", formatDerived(format, stats.getAcceleration())));
+        packer.append(String.format("\nturning: %s", formatDerived(format, stats.getTurning())));
+        packer.append('\n');
+        for (Map.Entry<String, Double> attribute : stats.getAttributes().entrySet())
+            packer.append(String.format("\n%s: %s", attribute.getKey(), format.format(attribute.getValue())));
+        if (!stats.getMissingOutfits().isEmpty())
+            packer.append("\n\nUnknown outfits (not included): ").append(String.join(", ", stats.getMissingOutfits()));
+        packer.send();
+    }
+
+    private static String formatDerived(DecimalFormat format, double value) {
+        return Double.isNaN(value) ? "-" : format.format(value);
+    }
+}
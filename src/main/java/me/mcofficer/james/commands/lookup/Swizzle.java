@@ -2,22 +2,21 @@ package me.mcofficer.james.commands.lookup;
 
 import com.jagrosh.jdautilities.command.Command;
 import com.jagrosh.jdautilities.command.CommandEvent;
-import me.mcofficer.esparser.DataNode;
 import me.mcofficer.james.James;
+import me.mcofficer.james.gamedata.NodeView;
 import me.mcofficer.james.tools.Lookups;
 import net.dv8tion.jda.core.EmbedBuilder;
 
 import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.function.Supplier;
 
 public class Swizzle extends Command {
 
-    private HashMap<Integer, Map.Entry<String, List<DataNode>>> vectors = new HashMap<>();
-    private final Lookups lookups;
+    private HashMap<Integer, String> vectors = new HashMap<>();
+    private final Supplier<Lookups> lookups;
 
 
-    public Swizzle(Lookups lookups) {
+    public Swizzle(Supplier<Lookups> lookups) {
         name = "swizzle";
         help = "Displays information about a swizzle X (can range from 0-8)";
         arguments = "X";
@@ -40,7 +39,7 @@ public class Swizzle extends Command {
         };
 
         for (int i = 0; i < vectorStrings.length; i++)
-            vectors.put(i, Map.entry(vectorStrings[i], lookups.getGovernmentsBySwizzle(i)));
+            vectors.put(i, vectorStrings[i]);
     }
 
     @Override
@@ -50,9 +49,8 @@ public class Swizzle extends Command {
         if (!vectors.containsKey(swizzle))
             event.reply("Swizzle not found!");
         else {
-            Map.Entry<String, List<DataNode>> vector = vectors.get(swizzle);
             StringBuilder govStringBuilder = new StringBuilder();
-            for (DataNode node : vector.getValue())
+            for (NodeView node : lookups.get().getGovernmentsBySwizzle(swizzle))
                 govStringBuilder.append("\n\u2022 ")
                         .append(String.join(" ", node.getTokens().subList(1, node.getTokens().size())));
 
@@ -60,7 +58,7 @@ public class Swizzle extends Command {
                     .setTitle("EndlessSky-Discord-Bot", James.GITHUB_URL)
                     .setColor(event.getGuild().getSelfMember().getColor())
                     .setDescription(String.format("**Swizzle Vector:**\n```%s```\n\n**Governments using this swizzle:**\n%s",
-                            vector.getKey(), govStringBuilder.toString()))
+                            vectors.get(swizzle), govStringBuilder.toString()))
                     .setThumbnail(James.GITHUB_RAW_URL + "thumbnails/swizzles/" + swizzle + ".png");
             event.reply(embedBuilder.build());
         }
@@ -0,0 +1,100 @@
+package me.mcofficer.james.commands.lookup;
+
+import com.jagrosh.jdautilities.command.Command;
+import com.jagrosh.jdautilities.command.CommandEvent;
+import me.mcofficer.james.James;
+import me.mcofficer.james.tools.AttributeTable;
+import me.mcofficer.james.tools.Lookups;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class Top extends Command {
+
+    private final static int MAX_RESULTS = 10;
+
+    private final Supplier<Lookups> lookups;
+
+    public Top(Supplier<Lookups> lookups) {
+        name = "top";
+        help = "Ranks ships or outfits by an attribute (or a ratio like \"energy generation\"/mass), optionally filtered. " +
+                "Prefix the attribute with - to rank the lowest values first. Quote names containing spaces, " +
+                "e.g. `top ship \"outfit space\" cost<2000000`.";
+        arguments = "<ship|outfit> [-]<attribute> [filter]...";
+        category = James.lookup;
+        this.lookups = lookups;
+    }
+
+    @Override
+    protected void execute(CommandEvent event) {
+        List<String> args = split(event.getArgs());
+        if (args.size() < 2) {
+            event.reply("Usage: `" + name + " " + arguments + "`");
+            return;
+        }
+
+        AttributeTable table = lookups.get().getAttributeTable(args.get(0).toLowerCase());
+        if (table == null) {
+            event.reply("Can only rank ships and outfits!");
+            return;
+        }
+
+        String expression = args.get(1).toLowerCase();
+        boolean ascending = expression.startsWith("-");
+        if (ascending)
+            expression = expression.substring(1);
+
+        List<AttributeTable.Row> rows;
+        try {
+            List<AttributeTable.Filter> filters = new ArrayList<>();
+            for (String filter : args.subList(2, args.size()))
+                filters.add(AttributeTable.Filter.parse(filter.toLowerCase()));
+            rows = table.top(expression, filters, ascending, MAX_RESULTS);
+        }
+        catch (IllegalArgumentException e) {
+            event.reply(e.getMessage());
+            return;
+        }
+
+        if (rows.isEmpty()) {
+            event.reply("Found no matching " + table.getType() + "s!");
+            return;
+        }
+        DecimalFormat format = new DecimalFormat("#,##0.###");
+        StringBuilder sb = new StringBuilder("```");
+        for (int i = 0; i < rows.size(); i++) {
+            AttributeTable.Row row = rows.get(i);
+            List<String> tokens = row.getNode().getTokens();
+            sb.append(String.format("\n%2d. %s: %s", i + 1, tokens.get(tokens.size() - 1), format.format(row.getValue())));
+        }
+        event.reply(sb.append("```").toString());
+    }
+
+    /** Splits args at whitespace, except within quotes or backticks, which are removed.
+     * @param args
+     * @return The non-empty arguments.
+     */
+    private static List<String> split(String args) {
+        List<String> split = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        char quote = 0;
+        for (char c : args.toCharArray()) {
+            if (quote == 0 && (c == '"' || c == '`'))
+                quote = c;
+            else if (c == quote)
+                quote = 0;
+            else if (quote == 0 && Character.isWhitespace(c)) {
+                if (current.length() > 0)
+                    split.add(current.toString());
+                current.setLength(0);
+            }
+            else
+                current.append(c);
+        }
+        if (current.length() > 0)
+            split.add(current.toString());
+        return split;
+    }
+}
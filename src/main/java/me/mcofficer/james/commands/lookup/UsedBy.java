@@ -0,0 +1,73 @@
+package me.mcofficer.james.commands.lookup;
+
+import com.jagrosh.jdautilities.command.Command;
+import com.jagrosh.jdautilities.command.CommandEvent;
+import me.mcofficer.james.James;
+import me.mcofficer.james.Util;
+import me.mcofficer.james.gamedata.NodeView;
+import me.mcofficer.james.tools.Lookups;
+import me.mcofficer.james.tools.MessagePacker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class UsedBy extends Command {
+
+    /** Longer listings are sent as a file attachment. */
+    private final static int MAX_MESSAGES = 3;
+
+    private final Supplier<Lookups> lookups;
+
+    public UsedBy(Supplier<Lookups> lookups) {
+        name = "usedby";
+        help = "Lists everything referencing <query>, e.g. the ships carrying an outfit or the fleets including a ship.";
+        arguments = "[type:]<query>";
+        category = James.lookup;
+        this.lookups = lookups;
+    }
+
+    @Override
+    protected void execute(CommandEvent event) {
+        Lookups lookups = this.lookups.get();
+        List<NodeView> matches = lookups.getNodesByString(event.getArgs());
+
+        if (matches.size() < 1)
+            event.reply("Found no matches for `" + event.getArgs() + "`!");
+        else if (matches.size() == 1)
+            sendReferences(event, lookups, matches.get(0));
+        else
+            Util.displayNodeSearchResults(matches, event, ((message, integer) ->
+                    sendReferences(event, lookups, matches.get(integer - 1))));
+    }
+
+    /** Lists the nodes referencing node, grouped by their type.
+     * @param event
+     * @param lookups
+     * @param node
+     */
+    private void sendReferences(CommandEvent event, Lookups lookups, NodeView node) {
+        List<NodeView> referencing = lookups.getReferencingNodes(node);
+        if (referencing.isEmpty()) {
+            event.reply("Nothing references `" + node + "`.");
+            return;
+        }
+
+        Map<String, List<String>> names = new LinkedHashMap<>();
+        for (NodeView reference : referencing)
+            names.computeIfAbsent(reference.getToken(0), type -> new ArrayList<>())
+                    .add(String.join(" ", reference.getTokens().subList(1, reference.getTokenCount())));
+
+        event.reply(String.format("`%s` is referenced by %d nodes:", node, referencing.size()));
+        MessagePacker packer = new MessagePacker(event.getTextChannel(), "```", "```", MAX_MESSAGES,
+                node.toString().replaceAll("[^A-Za-z0-9_-]+", "_") + "_usedby.txt");
+        names.forEach((type, list) -> {
+            packer.append(String.format("\n%s (%d)", type, list.size()));
+            for (String name : list)
+                packer.append("\n\t").append(name);
+        });
+        packer.send();
+    }
+}
@@ -0,0 +1,223 @@
+package me.mcofficer.james.gamedata;
+
+import me.mcofficer.esparser.DataFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A version of the game data, backed by a {@link GameDataSnapshot}.
+ * <p>
+ * Nodes are only ever accessed as {@link NodeView}s into the memory-mapped snapshot. DataFiles are parsed while
+ * writing a snapshot, and dropped right after, so the node forest never lives on the heap.
+ */
+public class GameData {
+
+    private final static Logger log = LoggerFactory.getLogger(GameData.class);
+    private final static String SNAPSHOT_EXTENSION = ".snapshot";
+    private final static int KEPT_SNAPSHOTS = 5;
+
+    private final GameDataSnapshot snapshot;
+
+    public GameData(GameDataSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Loads the latest game data. If a snapshot of it exists in dir, it is used as is - otherwise the changed data files
+     * are fetched, parsed, and a snapshot is written for the next time.
+     * If the source can't be reached, falls back to the most recent snapshot in dir.
+     * @param dir The directory to keep snapshots in.
+     * @param source
+     * @return The game data.
+     * @throws IOException If the data could neither be loaded from a snapshot nor from the source.
+     */
+    public static GameData load(Path dir, GameDataSource source) throws IOException {
+        return load(dir, source, null);
+    }
+
+    /**
+     * Like {@link #load(Path, GameDataSource)}, but reuses what is unchanged since previous: If the data didn't change
+     * at all, previous itself is returned. Otherwise, only changed data files are parsed, the others are copied from
+     * previous' snapshot. Doesn't fall back to older snapshots.
+     * @param dir The directory to keep snapshots in.
+     * @param source
+     * @param previous The currently loaded game data, or null.
+     * @return The game data.
+     * @throws IOException If the data could not be loaded.
+     */
+    public static GameData load(Path dir, GameDataSource source, @Nullable GameData previous) throws IOException {
+        Files.createDirectories(dir);
+        GameDataSource.Revision revision;
+        try {
+            revision = source.resolve();
+        }
+        catch (IOException | RuntimeException e) {
+            if (previous != null)
+                throw new IOException("Failed to resolve the game data", e);
+            Optional<Path> latest = findLatestSnapshot(dir);
+            if (latest.isEmpty())
+                throw new IOException("Failed to resolve the game data, and there is no snapshot to fall back to", e);
+            log.warn("Failed to resolve the game data, falling back to " + latest.get() + ": " + e);
+            return new GameData(GameDataSnapshot.open(latest.get()));
+        }
+
+        if (previous != null && previous.getVersion().equals(revision.getVersion()))
+            return previous;
+
+        Path snapshotFile = dir.resolve(revision.getVersion() + SNAPSHOT_EXTENSION);
+        if (Files.exists(snapshotFile)) {
+            try {
+                GameDataSnapshot snapshot = GameDataSnapshot.open(snapshotFile);
+                log.info("Loaded game data snapshot " + snapshot.getVersion());
+                return new GameData(snapshot);
+            }
+            catch (IOException e) {
+                log.warn("Failed to open snapshot " + snapshotFile + ", parsing the game data instead: " + e);
+            }
+        }
+
+        // Files are identified by their content-addressed path, so an unchanged file has the same source path
+        Map<String, Integer> previousFiles = new HashMap<>();
+        if (previous != null)
+            for (int i = 0; i < previous.snapshot.getFileCount(); i++)
+                previousFiles.put(previous.snapshot.getSourcePath(i), i);
+
+        List<GameDataSnapshot.FileSource> files = new ArrayList<>();
+        int parsed = 0;
+        for (Path path : revision.fetchDataFiles()) {
+            String sourcePath = path.toAbsolutePath().toString();
+            Integer previousFile = previousFiles.get(sourcePath);
+            if (previousFile != null)
+                files.add(GameDataSnapshot.FileSource.of(previous.snapshot, previousFile));
+            else {
+                files.add(GameDataSnapshot.FileSource.of(sourcePath, parse(sourcePath)));
+                parsed++;
+            }
+        }
+        log.info(String.format("Parsed %d of %d data files", parsed, files.size()));
+
+        GameDataSnapshot.write(snapshotFile, revision.getVersion(), files, revision.getImagePaths());
+        log.info("Wrote game data snapshot " + revision.getVersion());
+        pruneSnapshots(dir);
+        return new GameData(GameDataSnapshot.open(snapshotFile));
+    }
+
+    /**
+     * Deletes all but the {@link #KEPT_SNAPSHOTS} most recent snapshots, and the blobs none of the kept ones use.
+     * Snapshots that are still mapped stay readable until they are unmapped (except on Windows, where they can't be
+     * deleted yet).
+     * @param dir
+     */
+    private static void pruneSnapshots(Path dir) {
+        try {
+            List<Path> snapshots;
+            try (Stream<Path> files = Files.list(dir)) {
+                snapshots = files.filter(path -> path.getFileName().toString().endsWith(SNAPSHOT_EXTENSION))
+                        .sorted(Comparator.comparingLong((Path path) -> path.toFile().lastModified()).reversed())
+                        .collect(Collectors.toList());
+            }
+            Set<Path> usedBlobs = new HashSet<>();
+            for (int i = 0; i < snapshots.size(); i++) {
+                if (i >= KEPT_SNAPSHOTS) {
+                    Files.deleteIfExists(snapshots.get(i));
+                    continue;
+                }
+                for (String sourcePath : GameDataSnapshot.readSourcePaths(snapshots.get(i)))
+                    usedBlobs.add(Paths.get(sourcePath).toAbsolutePath());
+            }
+
+            Path blobDir = dir.resolve(GameDataFetcher.BLOB_DIR);
+            if (!Files.isDirectory(blobDir))
+                return;
+            try (Stream<Path> blobs = Files.list(blobDir)) {
+                for (Path blob : (Iterable<Path>) blobs::iterator)
+                    if (!usedBlobs.contains(blob.toAbsolutePath()))
+                        Files.deleteIfExists(blob);
+            }
+        }
+        catch (IOException e) {
+            log.warn("Failed to prune old game data snapshots: " + e);
+        }
+    }
+
+    /**
+     * @param dir The directory snapshots are kept in.
+     * @return The versions of all snapshots in dir, most recent first.
+     * @throws IOException
+     */
+    public static List<String> listSnapshots(Path dir) throws IOException {
+        if (!Files.isDirectory(dir))
+            return new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SNAPSHOT_EXTENSION))
+                    .sorted(Comparator.comparingLong((Path path) -> path.toFile().lastModified()).reversed())
+                    .map(path -> path.getFileName().toString())
+                    .map(name -> name.substring(0, name.length() - SNAPSHOT_EXTENSION.length()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Opens a snapshot kept in dir, without fetching anything.
+     * @param dir The directory snapshots are kept in.
+     * @param version A version, or a prefix of exactly one version, see {@link #listSnapshots(Path)}.
+     * @return The game data of that version.
+     * @throws IOException If there is no such snapshot, or it can't be opened.
+     */
+    public static GameData openSnapshot(Path dir, String version) throws IOException {
+        List<String> matches = listSnapshots(dir).stream()
+                .filter(v -> v.startsWith(version))
+                .collect(Collectors.toList());
+        if (matches.contains(version))
+            matches = Collections.singletonList(version);
+        if (matches.size() != 1)
+            throw new NoSuchFileException(version, null, matches.isEmpty() ? "No such game data snapshot"
+                    : "Ambiguous game data version, matches " + String.join(", ", matches));
+        return new GameData(GameDataSnapshot.open(dir.resolve(matches.get(0) + SNAPSHOT_EXTENSION)));
+    }
+
+    private static Optional<Path> findLatestSnapshot(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SNAPSHOT_EXTENSION))
+                    .max(Comparator.comparingLong(path -> path.toFile().lastModified()));
+        }
+    }
+
+    public GameDataSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public String getVersion() {
+        return snapshot.getVersion();
+    }
+
+    public int getRootCount() {
+        return snapshot.getRootCount();
+    }
+
+    /**
+     * @param id The id of any node, see {@link GameDataSnapshot}. Root nodes come first.
+     * @return A view of the node.
+     */
+    public NodeView getNode(int id) {
+        return new NodeView(snapshot, id);
+    }
+
+    private static DataFile parse(String sourcePath) throws IOException {
+        return new DataFile(sourcePath);
+    }
+
+    public ArrayList<String> getImagePaths() {
+        return new ArrayList<>(snapshot.getImagePaths());
+    }
+}
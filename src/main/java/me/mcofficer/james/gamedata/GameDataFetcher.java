@@ -0,0 +1,323 @@
+package me.mcofficer.james.gamedata;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Fetches the ES data files and image listing from GitHub.
+ * <p>
+ * The head commit of the branch is resolved with a conditional request to the GitHub API, and its tree is only fetched
+ * if the commit changed - if it didn't, GitHub answers 304 and the cached tree is used, so a warm start costs one
+ * request, which doesn't count against the rate limit. Data files are identified by their blob SHA and kept in a
+ * content-addressed cache on disk, so only files that changed upstream are downloaded - in parallel, from raw URLs
+ * of the resolved commit (which aren't rate limited like the API), and verified against their SHA.
+ * <p>
+ * The base URLs are configurable, so the fetcher can be pointed at a local stand-in for GitHub.
+ */
+public class GameDataFetcher implements GameDataSource {
+
+    public final static String DEFAULT_API_URL = "https://api.github.com";
+    public final static String DEFAULT_RAW_URL = "https://raw.githubusercontent.com";
+    private final static String REPOSITORY = "endless-sky/endless-sky";
+    private final static String BRANCH = "master";
+    private final static int TIMEOUT = 30000;
+    /** The directory inside the cache directory that blobs are kept in, named by their SHA. */
+    public final static String BLOB_DIR = "blobs";
+
+    private final Logger log = LoggerFactory.getLogger(GameDataFetcher.class);
+    private final String apiUrl;
+    private final String rawUrl;
+    private final String githubToken;
+    private final Path cacheDir;
+    private final int parallelism;
+
+    /**
+     * @param apiUrl The base URL of the GitHub API, e.g. {@link #DEFAULT_API_URL}.
+     * @param rawUrl The base URL data files are downloaded from and image URLs are built from, e.g.
+     *               {@link #DEFAULT_RAW_URL}.
+     * @param githubToken May be empty.
+     * @param cacheDir The directory to keep the tree and blobs in.
+     * @param parallelism The maximum number of concurrent downloads.
+     */
+    public GameDataFetcher(String apiUrl, String rawUrl, String githubToken, Path cacheDir, int parallelism) {
+        this.apiUrl = apiUrl;
+        this.rawUrl = rawUrl;
+        this.githubToken = githubToken;
+        this.cacheDir = cacheDir;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Resolves the head commit of the ES repository and its tree, using the cached tree if the commit didn't change.
+     * @return The tree.
+     * @throws IOException If the tree can't be fetched.
+     */
+    @Override
+    public Tree resolve() throws IOException {
+        Files.createDirectories(cacheDir);
+        Path treeFile = cacheDir.resolve("tree.json");
+        Path commitFile = cacheDir.resolve("tree.commit");
+        Path etagFile = cacheDir.resolve("commit.etag");
+        boolean cached = Files.exists(treeFile) && Files.exists(commitFile);
+
+        HttpURLConnection connection = open(apiUrl + "/repos/" + REPOSITORY + "/commits/" + BRANCH);
+        connection.setRequestProperty("Accept", "application/vnd.github.v3.sha");
+        if (cached && Files.exists(etagFile))
+            connection.setRequestProperty("If-None-Match", Files.readString(etagFile).trim());
+
+        int status = connection.getResponseCode();
+        if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            log.info("Game data tree unchanged");
+            return new Tree(new JSONObject(Files.readString(treeFile)), Files.readString(commitFile).trim());
+        }
+        if (status != HttpURLConnection.HTTP_OK)
+            throw new IOException("Failed to resolve the game data commit: HTTP " + status);
+        String commit;
+        try (InputStream in = connection.getInputStream()) {
+            commit = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+        String etag = connection.getHeaderField("ETag");
+
+        String json;
+        if (cached && Files.readString(commitFile).trim().equals(commit))
+            json = Files.readString(treeFile);
+        else {
+            HttpURLConnection treeConnection =
+                    open(apiUrl + "/repos/" + REPOSITORY + "/git/trees/" + commit + "?recursive=1");
+            int treeStatus = treeConnection.getResponseCode();
+            if (treeStatus != HttpURLConnection.HTTP_OK)
+                throw new IOException("Failed to fetch the game data tree: HTTP " + treeStatus);
+            try (InputStream in = treeConnection.getInputStream()) {
+                json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        Tree tree = new Tree(new JSONObject(json), commit);
+        write(treeFile, json.getBytes(StandardCharsets.UTF_8));
+        write(commitFile, commit.getBytes(StandardCharsets.UTF_8));
+        if (etag != null)
+            write(etagFile, etag.getBytes(StandardCharsets.UTF_8));
+        else
+            Files.deleteIfExists(etagFile);
+        return tree;
+    }
+
+    /**
+     * Makes sure all data files of the tree are in the blob cache, downloading the missing ones in parallel.
+     * @param tree
+     * @return The paths of the cached data files, in tree order.
+     * @throws IOException If any data file couldn't be downloaded.
+     */
+    private List<Path> fetchDataFiles(Tree tree) throws IOException {
+        Path blobDir = cacheDir.resolve(BLOB_DIR);
+        Files.createDirectories(blobDir);
+
+        List<Path> paths = new ArrayList<>();
+        List<Callable<Void>> downloads = new ArrayList<>();
+        for (Map.Entry<String, String> file : tree.getDataFiles().entrySet()) {
+            String sha = file.getValue();
+            Path blob = blobDir.resolve(sha);
+            paths.add(blob);
+            if (!Files.exists(blob))
+                downloads.add(() -> {
+                    downloadBlob(tree.commit, file.getKey(), sha, blob);
+                    return null;
+                });
+        }
+        log.info(String.format("Downloading %d of %d data files...", downloads.size(), paths.size()));
+        if (downloads.isEmpty())
+            return paths;
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, downloads.size()));
+        try {
+            for (Future<Void> future : pool.invokeAll(downloads)) {
+                try {
+                    future.get();
+                }
+                catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException)
+                        throw (IOException) e.getCause();
+                    throw new IOException(e.getCause());
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading data files", e);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        return paths;
+    }
+
+    /** Downloads a file from the raw URL of a commit, and verifies it against its blob SHA.
+     * @param commit
+     * @param path The path of the file in the repository.
+     * @param sha
+     * @param target
+     * @throws IOException
+     */
+    private void downloadBlob(String commit, String path, String sha, Path target) throws IOException {
+        HttpURLConnection connection = open(rawUrl + "/" + REPOSITORY + "/" + commit + "/" + encodePath(path));
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK)
+            throw new IOException("Failed to download " + path + ": HTTP " + status);
+
+        byte[] content;
+        try (InputStream in = connection.getInputStream()) {
+            content = in.readAllBytes();
+        }
+        if (!getBlobSha(content).equals(sha))
+            throw new IOException("Downloaded " + path + " doesn't match its SHA " + sha);
+        write(target, content);
+    }
+
+    private HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        connection.setRequestProperty("User-Agent", "MarioB(r)owser4.2");
+        if (githubToken != null && !githubToken.isEmpty())
+            connection.setRequestProperty("Authorization", "token " + githubToken);
+        return connection;
+    }
+
+    /** Writes to a temporary file first, so target is either complete or absent.
+     * @param target
+     * @param content
+     * @throws IOException
+     */
+    static void write(Path target, byte[] content) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @param content
+     * @return The SHA git identifies content by, i.e. the SHA-1 of "blob {length}\0{content}".
+     */
+    static String getBlobSha(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(("blob " + content.length + "\0").getBytes(StandardCharsets.US_ASCII));
+            byte[] hash = digest.digest(content);
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash)
+                sb.append(String.format("%02x", b));
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException e) { // Every JVM has to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The parts of the ES repository tree the bot cares about.
+     */
+    public class Tree implements Revision {
+
+        /** Data file paths mapped to their blob SHAs, sorted by path. */
+        private final TreeMap<String, String> dataFiles = new TreeMap<>();
+        private final List<String> imagePaths = new ArrayList<>();
+        /** The SHA of the commit the tree belongs to. */
+        private final String commit;
+        private String dataSha = "";
+        private String imagesSha = "";
+
+        private Tree(JSONObject json, String commit) {
+            this.commit = commit;
+            if (json.optBoolean("truncated"))
+                log.warn("The game data tree is truncated, some files will be missing");
+            JSONArray entries = json.getJSONArray("tree");
+            for (Object o : entries) {
+                JSONObject entry = (JSONObject) o;
+                String path = entry.getString("path");
+                String type = entry.getString("type");
+                if (type.equals("tree")) {
+                    if (path.equals("data"))
+                        dataSha = entry.getString("sha");
+                    else if (path.equals("images"))
+                        imagesSha = entry.getString("sha");
+                }
+                else if (type.equals("blob")) {
+                    if (path.startsWith("data/") && path.endsWith(".txt"))
+                        dataFiles.put(path, entry.getString("sha"));
+                    else if (path.startsWith("images/"))
+                        imagePaths.add(rawUrl + "/" + REPOSITORY + "/" + BRANCH + "/" + encodePath(path));
+                }
+            }
+        }
+
+        /**
+         * @return Derived from the SHAs of the data and images directories.
+         */
+        @Override
+        public String getVersion() {
+            return shorten(dataSha) + "-" + shorten(imagesSha);
+        }
+
+        private String shorten(String sha) {
+            return sha.length() > 12 ? sha.substring(0, 12) : sha;
+        }
+
+        /**
+         * @return Data file paths mapped to their blob SHAs, sorted by path.
+         */
+        public SortedMap<String, String> getDataFiles() {
+            return Collections.unmodifiableSortedMap(dataFiles);
+        }
+
+        /**
+         * Makes sure all data files are in the blob cache, downloading the missing ones in parallel.
+         * @return The paths of the cached data files, sorted by their path in the repository.
+         * @throws IOException If any data file couldn't be downloaded.
+         */
+        @Override
+        public List<Path> fetchDataFiles() throws IOException {
+            return GameDataFetcher.this.fetchDataFiles(this);
+        }
+
+        @Override
+        public ArrayList<String> getImagePaths() {
+            return new ArrayList<>(imagePaths);
+        }
+    }
+
+    /**
+     * Percent-encodes a repository path the way GitHub's download URLs do.
+     * @param path
+     * @return The encoded path.
+     */
+    static String encodePath(String path) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || "-._~/+@".indexOf(c) != -1)
+                sb.append(c);
+            else
+                sb.append(String.format("%%%02X", (int) c));
+        }
+        return sb.toString();
+    }
+}
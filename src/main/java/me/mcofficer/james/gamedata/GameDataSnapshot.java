@@ -0,0 +1,426 @@
+package me.mcofficer.james.gamedata;
+
+import me.mcofficer.esparser.DataFile;
+import me.mcofficer.esparser.DataNode;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A compact binary snapshot of a parsed DataNode forest, the image paths and the version they belong to.
+ * Snapshots are memory-mapped, nothing but the header is read upfront, and tokens are only decoded when requested.
+ * <p>
+ * All nodes are numbered breadth-first: The roots of all files come first (in file order), and the children of every
+ * node have consecutive ids. Nodes are then stored as parallel int arrays - where their tokens start in the token
+ * array, and where their children start. Every distinct string is stored only once.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * int magic, int format
+ * int versionString, int fileCount, int rootCount, int nodeCount, int tokenCount, int imageCount,
+ *     int stringCount, int stringBytes
+ * int[stringCount + 1] stringStarts    byte offsets into the string data
+ * int[fileCount]       fileSources     string ids of the source paths
+ * int[fileCount + 1]   fileRootStarts  id of every file's first root node
+ * int[nodeCount + 1]   tokenStarts     index of every node's first token
+ * int[tokenCount]      tokens          string ids
+ * int[nodeCount + 1]   childStarts     id of every node's first child
+ * int[imageCount]      images          string ids
+ * byte[stringBytes]    string data     UTF-8
+ * </pre>
+ */
+public class GameDataSnapshot {
+
+    private final static int MAGIC = 0x4A534E50; // "JSNP"
+    private final static int FORMAT = 1;
+    private final static int HEADER_INTS = 10;
+
+    private final String version;
+    private final int fileCount;
+    private final int rootCount;
+    private final int nodeCount;
+
+    private final IntBuffer stringStarts;
+    private final IntBuffer fileSources;
+    private final IntBuffer fileRootStarts;
+    private final IntBuffer tokenStarts;
+    private final IntBuffer tokens;
+    private final IntBuffer childStarts;
+    private final IntBuffer images;
+    private final ByteBuffer stringData;
+    /** Strings decoded so far. Racy, but Strings are immutable, so the worst case is decoding one twice. */
+    private final String[] strings;
+
+    private GameDataSnapshot(ByteBuffer buffer) throws IOException {
+        IntBuffer header = buffer.asIntBuffer();
+        if (header.get(0) != MAGIC || header.get(1) != FORMAT)
+            throw new IOException("Not a game data snapshot, or an incompatible format");
+        int versionString = header.get(2);
+        fileCount = header.get(3);
+        rootCount = header.get(4);
+        nodeCount = header.get(5);
+        int tokenCount = header.get(6);
+        int imageCount = header.get(7);
+        int stringCount = header.get(8);
+        int stringBytes = header.get(9);
+
+        int offset = HEADER_INTS * Integer.BYTES;
+        stringStarts = slice(buffer, offset, stringCount + 1);
+        offset += (stringCount + 1) * Integer.BYTES;
+        fileSources = slice(buffer, offset, fileCount);
+        offset += fileCount * Integer.BYTES;
+        fileRootStarts = slice(buffer, offset, fileCount + 1);
+        offset += (fileCount + 1) * Integer.BYTES;
+        tokenStarts = slice(buffer, offset, nodeCount + 1);
+        offset += (nodeCount + 1) * Integer.BYTES;
+        tokens = slice(buffer, offset, tokenCount);
+        offset += tokenCount * Integer.BYTES;
+        childStarts = slice(buffer, offset, nodeCount + 1);
+        offset += (nodeCount + 1) * Integer.BYTES;
+        images = slice(buffer, offset, imageCount);
+        offset += imageCount * Integer.BYTES;
+        stringData = buffer.duplicate().position(offset).limit(offset + stringBytes).slice();
+
+        strings = new String[stringCount];
+        version = getString(versionString);
+    }
+
+    private static IntBuffer slice(ByteBuffer buffer, int offset, int ints) {
+        return buffer.duplicate().position(offset).limit(offset + ints * Integer.BYTES).slice().asIntBuffer();
+    }
+
+    /** Memory-maps a snapshot.
+     * @param file
+     * @return The snapshot.
+     * @throws IOException If the file can't be read or isn't a snapshot.
+     */
+    public static GameDataSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new GameDataSnapshot(buffer);
+        }
+    }
+
+    /** Reads only the source paths of a snapshot's files, with a few small reads instead of mapping it.
+     * @param file
+     * @return The source path of every file, in file order.
+     * @throws IOException If the file can't be read or isn't a snapshot.
+     */
+    public static List<String> readSourcePaths(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            IntBuffer header = read(channel, 0, HEADER_INTS * Integer.BYTES).asIntBuffer();
+            if (header.get(0) != MAGIC || header.get(1) != FORMAT)
+                throw new IOException("Not a game data snapshot, or an incompatible format");
+            int fileCount = header.get(3);
+            int nodeCount = header.get(5);
+            int tokenCount = header.get(6);
+            int imageCount = header.get(7);
+            int stringCount = header.get(8);
+
+            long stringStarts = HEADER_INTS * Integer.BYTES;
+            long fileSources = stringStarts + (long) (stringCount + 1) * Integer.BYTES;
+            long stringData = fileSources + ((long) fileCount + fileCount + 1 + nodeCount + 1 + tokenCount + nodeCount + 1
+                    + imageCount) * Integer.BYTES;
+            IntBuffer sources = read(channel, fileSources, fileCount * Integer.BYTES).asIntBuffer();
+            List<String> paths = new ArrayList<>(fileCount);
+            for (int i = 0; i < fileCount; i++) {
+                IntBuffer range = read(channel, stringStarts + (long) sources.get(i) * Integer.BYTES, 2 * Integer.BYTES)
+                        .asIntBuffer();
+                ByteBuffer bytes = read(channel, stringData + range.get(0), range.get(1) - range.get(0));
+                paths.add(StandardCharsets.UTF_8.decode(bytes).toString());
+            }
+            return paths;
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Truncated game data snapshot");
+        return buffer.flip();
+    }
+
+    /** Writes a snapshot of the given data. The file is replaced atomically, so a snapshot is either complete or absent.
+     * @param file
+     * @param version The version of the data, e.g. the commit it was fetched from.
+     * @param sourcePaths The path of every DataFile's source.
+     * @param dataFiles
+     * @param imagePaths
+     * @throws IOException
+     */
+    public static void write(Path file, String version, List<String> sourcePaths, List<DataFile> dataFiles,
+                             List<String> imagePaths) throws IOException {
+        List<FileSource> files = new ArrayList<>();
+        for (int i = 0; i < dataFiles.size(); i++)
+            files.add(FileSource.of(sourcePaths.get(i), dataFiles.get(i)));
+        write(file, version, files, imagePaths);
+    }
+
+    /** Like {@link #write(Path, String, List, List, List)}, but files can also be copied from other snapshots, so
+     * unchanged files don't need to be parsed again.
+     * @param file
+     * @param version
+     * @param files
+     * @param imagePaths
+     * @throws IOException
+     */
+    public static void write(Path file, String version, List<FileSource> files, List<String> imagePaths) throws IOException {
+        Map<String, Integer> stringIds = new LinkedHashMap<>();
+
+        // Number the nodes breadth-first, so that the children of every node are consecutive
+        List<SourceNode> nodes = new ArrayList<>();
+        int[] fileRootStarts = new int[files.size() + 1];
+        for (int i = 0; i < files.size(); i++) {
+            fileRootStarts[i] = nodes.size();
+            nodes.addAll(files.get(i).getRoots());
+        }
+        fileRootStarts[files.size()] = nodes.size();
+        int rootCount = nodes.size();
+
+        int[] childStarts = new int[rootCount + 1];
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i >= childStarts.length - 1)
+                childStarts = Arrays.copyOf(childStarts, Math.max(childStarts.length * 2, i + 2));
+            childStarts[i] = nodes.size();
+            nodes.get(i).addChildren(nodes);
+        }
+        int nodeCount = nodes.size();
+        childStarts = Arrays.copyOf(childStarts, nodeCount + 1);
+        childStarts[nodeCount] = nodeCount;
+
+        int[] tokenStarts = new int[nodeCount + 1];
+        int tokenCount = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            tokenStarts[i] = tokenCount;
+            tokenCount += nodes.get(i).getTokens().size();
+        }
+        tokenStarts[nodeCount] = tokenCount;
+        int[] tokens = new int[tokenCount];
+        for (int i = 0, t = 0; i < nodeCount; i++)
+            for (String token : nodes.get(i).getTokens())
+                tokens[t++] = intern(stringIds, token);
+
+        int versionString = intern(stringIds, version);
+        int[] fileSources = new int[files.size()];
+        for (int i = 0; i < fileSources.length; i++)
+            fileSources[i] = intern(stringIds, files.get(i).sourcePath);
+        int[] images = new int[imagePaths.size()];
+        for (int i = 0; i < images.length; i++)
+            images[i] = intern(stringIds, imagePaths.get(i));
+
+        List<byte[]> encoded = new ArrayList<>(stringIds.size());
+        int[] stringStarts = new int[stringIds.size() + 1];
+        int stringBytes = 0;
+        for (String s : stringIds.keySet()) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            stringStarts[encoded.size()] = stringBytes;
+            encoded.add(bytes);
+            stringBytes += bytes.length;
+        }
+        stringStarts[encoded.size()] = stringBytes;
+
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "snapshot", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            for (int i : new int[]{MAGIC, FORMAT, versionString, files.size(), rootCount, nodeCount, tokenCount,
+                    images.length, encoded.size(), stringBytes})
+                out.writeInt(i);
+            for (int[] array : new int[][]{stringStarts, fileSources, fileRootStarts, tokenStarts, tokens, childStarts, images})
+                for (int i : array)
+                    out.writeInt(i);
+            for (byte[] bytes : encoded)
+                out.write(bytes);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int intern(Map<String, Integer> stringIds, String s) {
+        Integer id = stringIds.get(s);
+        if (id == null) {
+            id = stringIds.size();
+            stringIds.put(s, id);
+        }
+        return id;
+    }
+
+    private String getString(int id) {
+        String s = strings[id];
+        if (s == null) {
+            ByteBuffer bytes = stringData.duplicate();
+            bytes.position(stringStarts.get(id)).limit(stringStarts.get(id + 1));
+            s = StandardCharsets.UTF_8.decode(bytes).toString();
+            strings[id] = s;
+        }
+        return s;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @param file
+     * @return The path of the file's source, as passed to {@link #write(Path, String, List, List, List)}.
+     */
+    public String getSourcePath(int file) {
+        return getString(fileSources.get(file));
+    }
+
+    /**
+     * @param file The index of a file, or {@link #getFileCount()}.
+     * @return The id of the file's first root node. For {@link #getFileCount()}, returns {@link #getRootCount()}.
+     */
+    public int getFileRootStart(int file) {
+        return fileRootStarts.get(file);
+    }
+
+    /**
+     * @return The number of root nodes. Root nodes have the ids 0 to getRootCount() - 1.
+     */
+    public int getRootCount() {
+        return rootCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getTokenCount(int node) {
+        return tokenStarts.get(node + 1) - tokenStarts.get(node);
+    }
+
+    public String getToken(int node, int index) {
+        return getString(tokens.get(tokenStarts.get(node) + index));
+    }
+
+    /**
+     * @param node
+     * @return A new List containing the node's tokens.
+     */
+    public List<String> getTokens(int node) {
+        int start = tokenStarts.get(node);
+        int end = tokenStarts.get(node + 1);
+        List<String> nodeTokens = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++)
+            nodeTokens.add(getString(tokens.get(i)));
+        return nodeTokens;
+    }
+
+    public int getChildCount(int node) {
+        return childStarts.get(node + 1) - childStarts.get(node);
+    }
+
+    /**
+     * @param node
+     * @return The id of the node's first child. Its other children follow consecutively.
+     */
+    public int getFirstChild(int node) {
+        return childStarts.get(node);
+    }
+
+    public List<String> getImagePaths() {
+        List<String> imagePaths = new ArrayList<>(images.limit());
+        for (int i = 0; i < images.limit(); i++)
+            imagePaths.add(getString(images.get(i)));
+        return imagePaths;
+    }
+
+    /**
+     * The nodes of one file to write into a snapshot: either a parsed DataFile, or a file of another snapshot.
+     */
+    public static class FileSource {
+
+        private final String sourcePath;
+        private final DataFile dataFile;
+        private final GameDataSnapshot snapshot;
+        private final int file;
+
+        private FileSource(String sourcePath, DataFile dataFile, GameDataSnapshot snapshot, int file) {
+            this.sourcePath = sourcePath;
+            this.dataFile = dataFile;
+            this.snapshot = snapshot;
+            this.file = file;
+        }
+
+        public static FileSource of(String sourcePath, DataFile dataFile) {
+            return new FileSource(sourcePath, dataFile, null, -1);
+        }
+
+        public static FileSource of(GameDataSnapshot snapshot, int file) {
+            return new FileSource(snapshot.getSourcePath(file), null, snapshot, file);
+        }
+
+        private List<SourceNode> getRoots() {
+            List<SourceNode> roots = new ArrayList<>();
+            if (dataFile != null)
+                for (DataNode node : dataFile.getNodes())
+                    roots.add(new ParsedNode(node));
+            else
+                for (int root = snapshot.getFileRootStart(file); root < snapshot.getFileRootStart(file + 1); root++)
+                    roots.add(new SnapshotNode(snapshot, root));
+            return roots;
+        }
+    }
+
+    /** A node being written. */
+    private interface SourceNode {
+        List<String> getTokens();
+        void addChildren(List<SourceNode> nodes);
+    }
+
+    private static class ParsedNode implements SourceNode {
+        private final DataNode node;
+
+        private ParsedNode(DataNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public List<String> getTokens() {
+            return node.getTokens();
+        }
+
+        @Override
+        public void addChildren(List<SourceNode> nodes) {
+            for (DataNode child : node.getChildren())
+                nodes.add(new ParsedNode(child));
+        }
+    }
+
+    private static class SnapshotNode implements SourceNode {
+        private final GameDataSnapshot snapshot;
+        private final int node;
+
+        private SnapshotNode(GameDataSnapshot snapshot, int node) {
+            this.snapshot = snapshot;
+            this.node = node;
+        }
+
+        @Override
+        public List<String> getTokens() {
+            return snapshot.getTokens(node);
+        }
+
+        @Override
+        public void addChildren(List<SourceNode> nodes) {
+            int first = snapshot.getFirstChild(node);
+            for (int child = first; child < first + snapshot.getChildCount(node); child++)
+                nodes.add(new SnapshotNode(snapshot, child));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package me.mcofficer.james.gamedata;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Where game data comes from, e.g. GitHub ({@link GameDataFetcher}) or a local checkout ({@link LocalGameDataSource}).
+ */
+public interface GameDataSource {
+
+    /**
+     * Determines the current revision of the game data, without fetching any data files.
+     * @return The revision.
+     * @throws IOException If the source can't be reached.
+     */
+    Revision resolve() throws IOException;
+
+    /**
+     * A version of the game data.
+     */
+    interface Revision {
+
+        /**
+         * @return Identifies the data files and images. Changes whenever either of them does.
+         */
+        String getVersion();
+
+        /**
+         * Makes the data files available locally. A file's path must change whenever its content does, so files with
+         * the same path can be reused across revisions without parsing them again.
+         * @return The paths of all data files, in load order.
+         * @throws IOException If any data file couldn't be fetched.
+         */
+        List<Path> fetchDataFiles() throws IOException;
+
+        /**
+         * @return The URLs of all images.
+         */
+        ArrayList<String> getImagePaths();
+    }
+}
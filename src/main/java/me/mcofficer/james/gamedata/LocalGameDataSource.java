@@ -0,0 +1,250 @@
+package me.mcofficer.james.gamedata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reads game data from a local endless-sky checkout, without any network access.
+ * <p>
+ * Data files are identified by their git blob SHA and copied into the same content-addressed cache
+ * {@link GameDataFetcher} uses, so an edited file gets a new path and only it is parsed again. Files are only hashed
+ * again if their size or modification time changed. Images aren't served locally - their URLs point to imageBaseUrl,
+ * using the same relative paths.
+ */
+public class LocalGameDataSource implements GameDataSource {
+
+    /** How long to wait for more changes after a file changed, so that saving several files triggers one reload. */
+    private final static long DEBOUNCE = 200;
+
+    private final Logger log = LoggerFactory.getLogger(LocalGameDataSource.class);
+    private final Path checkout;
+    private final Path cacheDir;
+    private final String imageBaseUrl;
+    private final ConcurrentHashMap<Path, FileState> states = new ConcurrentHashMap<>();
+
+    /**
+     * @param checkout The root of the checkout, containing data/ and images/.
+     * @param cacheDir The directory to keep blobs in.
+     * @param imageBaseUrl The URL the images directory is resolved against, e.g. the raw URL of the upstream repository.
+     */
+    public LocalGameDataSource(Path checkout, Path cacheDir, String imageBaseUrl) {
+        this.checkout = checkout.toAbsolutePath();
+        this.cacheDir = cacheDir;
+        this.imageBaseUrl = imageBaseUrl;
+    }
+
+    @Override
+    public Revision resolve() throws IOException {
+        Path dataDir = checkout.resolve("data");
+        if (!Files.isDirectory(dataDir))
+            throw new NoSuchFileException(dataDir.toString(), null, "Not an endless-sky checkout");
+
+        TreeMap<String, FileState> dataFiles = new TreeMap<>();
+        for (Path path : list(dataDir)) {
+            if (path.getFileName().toString().endsWith(".txt"))
+                dataFiles.put(getRelativePath(path), getState(path));
+        }
+        states.keySet().retainAll(dataFiles.values().stream().map(state -> state.path).collect(Collectors.toSet()));
+
+        ArrayList<String> imagePaths = new ArrayList<>();
+        Path imageDir = checkout.resolve("images");
+        if (Files.isDirectory(imageDir))
+            for (Path path : list(imageDir))
+                imagePaths.add(imageBaseUrl + "/" + GameDataFetcher.encodePath(getRelativePath(path)));
+        Collections.sort(imagePaths);
+
+        MessageDigest digest = getDigest();
+        for (Map.Entry<String, FileState> file : dataFiles.entrySet())
+            digest.update((file.getKey() + " " + file.getValue().sha + "\n").getBytes(StandardCharsets.UTF_8));
+        for (String imagePath : imagePaths)
+            digest.update((imagePath + "\n").getBytes(StandardCharsets.UTF_8));
+        String version = "local-" + toHex(digest.digest()).substring(0, 12);
+
+        return new LocalRevision(version, new ArrayList<>(dataFiles.values()), imagePaths);
+    }
+
+    /**
+     * Watches data/ for changes in the background, and calls onChange (debounced) whenever a file changed.
+     * @param onChange
+     * @throws IOException If the watch service can't be set up.
+     */
+    public void watch(Runnable onChange) throws IOException {
+        WatchService watchService = checkout.getFileSystem().newWatchService();
+        Files.walkFileTree(checkout.resolve("data"), new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                register(watchService, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watchService.take();
+                    boolean changed = handle(watchService, key);
+                    // Collect the rest of a burst of changes, e.g. an editor writing a temp file and renaming it
+                    while ((key = watchService.poll(DEBOUNCE, TimeUnit.MILLISECONDS)) != null)
+                        changed |= handle(watchService, key);
+                    if (changed)
+                        onChange.run();
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (RuntimeException e) {
+                log.error("Stopped watching " + checkout + ": " + e);
+            }
+        }, "LocalGameDataSource");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching " + checkout.resolve("data") + " for changes");
+    }
+
+    /** Registers new directories, and checks whether any of the events concern data files.
+     * @param watchService
+     * @param key
+     * @return Whether a data file (or directory) changed.
+     */
+    private boolean handle(WatchService watchService, WatchKey key) {
+        boolean changed = false;
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    register(watchService, path);
+                }
+                catch (IOException e) {
+                    log.warn("Failed to watch " + path + ": " + e);
+                }
+                changed = true;
+            }
+            else if (path.getFileName().toString().endsWith(".txt") || event.kind() == StandardWatchEventKinds.ENTRY_DELETE)
+                changed = true;
+        }
+        key.reset();
+        return changed;
+    }
+
+    private static void register(WatchService watchService, Path dir) throws IOException {
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    private FileState getState(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        FileState state = states.get(path);
+        if (state != null && state.size == attributes.size() && state.modified == attributes.lastModifiedTime().toMillis())
+            return state;
+
+        state = new FileState(path, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                GameDataFetcher.getBlobSha(Files.readAllBytes(path)));
+        states.put(path, state);
+        return state;
+    }
+
+    private List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+
+    private String getRelativePath(Path path) {
+        return checkout.relativize(path).toString().replace('\\', '/');
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e) { // Every JVM has to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes)
+            sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+
+    private class LocalRevision implements Revision {
+
+        private final String version;
+        private final List<FileState> dataFiles;
+        private final ArrayList<String> imagePaths;
+
+        private LocalRevision(String version, List<FileState> dataFiles, ArrayList<String> imagePaths) {
+            this.version = version;
+            this.dataFiles = dataFiles;
+            this.imagePaths = imagePaths;
+        }
+
+        @Override
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * Copies the data files into the blob cache, unless they are there already.
+         * @return The paths of the cached data files, sorted by their path in the checkout.
+         * @throws IOException
+         */
+        @Override
+        public List<Path> fetchDataFiles() throws IOException {
+            Path blobDir = cacheDir.resolve(GameDataFetcher.BLOB_DIR);
+            Files.createDirectories(blobDir);
+            List<Path> paths = new ArrayList<>();
+            for (FileState file : dataFiles) {
+                Path blob = blobDir.resolve(file.sha);
+                if (!Files.exists(blob)) {
+                    byte[] content = Files.readAllBytes(file.path);
+                    // The file may have changed again since it was hashed, the next reload will pick that up
+                    if (!GameDataFetcher.getBlobSha(content).equals(file.sha))
+                        throw new IOException(file.path + " changed while loading it");
+                    GameDataFetcher.write(blob, content);
+                }
+                paths.add(blob);
+            }
+            return paths;
+        }
+
+        @Override
+        public ArrayList<String> getImagePaths() {
+            return new ArrayList<>(imagePaths);
+        }
+    }
+
+    private static class FileState {
+        private final Path path;
+        private final long size;
+        private final long modified;
+        private final String sha;
+
+        private FileState(Path path, long size, long modified, String sha) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.sha = sha;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package me.mcofficer.james.gamedata;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * A node of a {@link GameDataSnapshot}, the lightweight counterpart of ESParser's DataNode.
+ * <p>
+ * A view is nothing but the snapshot and the node's id - tokens and children are read from the snapshot's arena when
+ * requested, so views can be created (and dropped) freely. Two views are equal if they point to the same node.
+ */
+public final class NodeView {
+
+    private final GameDataSnapshot snapshot;
+    private final int id;
+
+    NodeView(GameDataSnapshot snapshot, int id) {
+        this.snapshot = snapshot;
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getTokenCount() {
+        return snapshot.getTokenCount(id);
+    }
+
+    public String getToken(int index) {
+        return snapshot.getToken(id, index);
+    }
+
+    /**
+     * @return The node's tokens. Decoded lazily, the list doesn't copy anything.
+     */
+    public List<String> getTokens() {
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= size())
+                    throw new IndexOutOfBoundsException(index);
+                return snapshot.getToken(id, index);
+            }
+
+            @Override
+            public int size() {
+                return snapshot.getTokenCount(id);
+            }
+        };
+    }
+
+    public int getChildCount() {
+        return snapshot.getChildCount(id);
+    }
+
+    public NodeView getChild(int index) {
+        return new NodeView(snapshot, snapshot.getFirstChild(id) + index);
+    }
+
+    /**
+     * @return The node's children, as views created on access.
+     */
+    public List<NodeView> getChildren() {
+        int first = snapshot.getFirstChild(id);
+        int count = snapshot.getChildCount(id);
+        return new AbstractList<>() {
+            @Override
+            public NodeView get(int index) {
+                if (index < 0 || index >= count)
+                    throw new IndexOutOfBoundsException(index);
+                return new NodeView(snapshot, first + index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof NodeView))
+            return false;
+        NodeView other = (NodeView) o;
+        return snapshot == other.snapshot && id == other.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(snapshot) * 31 + id;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(" ", getTokens());
+    }
+}
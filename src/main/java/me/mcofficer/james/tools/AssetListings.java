@@ -0,0 +1,122 @@
+package me.mcofficer.james.tools;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckReturnValue;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps indexes of the source file listings on endlesssky.mcofficer.me/assets/, one per node type.
+ * <p>
+ * The listings are fetched in the background and refreshed periodically. Each listing is indexed by normalized asset
+ * name (the file name without extension, lower-cased, with underscores as spaces), so finding the assets of a node
+ * never needs a request. Until a listing has been fetched, it is treated as empty.
+ */
+public class AssetListings {
+
+    private final static String BASE_URL = "https://endlesssky.mcofficer.me/assets/assets%20for%20endless%20sky/";
+    private final static long REFRESH_INTERVAL = TimeUnit.HOURS.toMillis(6);
+    private final static int TIMEOUT = 10000;
+
+    /** Maps node types to the listing directory of their assets. */
+    private final static Map<String, String> DIRECTORIES = Map.of(
+            "ship", "ships/",
+            "outfit", "outfits/",
+            "projectile", "projectiles/"
+    );
+
+    private final Logger log = LoggerFactory.getLogger(AssetListings.class);
+    private final Map<String, TreeMap<String, List<String>>> listings = new HashMap<>();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * Fetches all listings now (in the background), and again every {@link #REFRESH_INTERVAL}.
+     */
+    public void start() {
+        refresher.scheduleWithFixedDelay(this::refresh, 0, REFRESH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fetches all listings and replaces the ones that could be fetched.
+     */
+    public void refresh() {
+        for (Map.Entry<String, String> directory : DIRECTORIES.entrySet()) {
+            try {
+                TreeMap<String, List<String>> listing = fetchListing(BASE_URL + directory.getValue());
+                synchronized (listings) {
+                    listings.put(directory.getKey(), listing);
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                log.warn("Failed to fetch the asset listing for " + directory.getKey() + ": " + e);
+            }
+        }
+    }
+
+    private static TreeMap<String, List<String>> fetchListing(String dirUrl) throws IOException {
+        Document doc = Jsoup.connect(dirUrl).timeout(TIMEOUT).get();
+        TreeMap<String, List<String>> listing = new TreeMap<>();
+        for (Element link : doc.body().getElementsByTag("pre").get(0).children())
+            listing.computeIfAbsent(normalizeFileName(link.text()), name -> new ArrayList<>()).add(link.attr("abs:href"));
+        return listing;
+    }
+
+    /**
+     * Finds the download URLs of all assets named like the node, or whose names start with the node's name.
+     * @param nodeType
+     * @param nodeName
+     * @return A possibly-empty list of download URLs.
+     */
+    @CheckReturnValue
+    public List<String> getUrls(String nodeType, String nodeName) {
+        TreeMap<String, List<String>> listing;
+        synchronized (listings) {
+            listing = listings.get(nodeType);
+        }
+        List<String> urls = new ArrayList<>();
+        if (listing == null)
+            return urls;
+
+        String name = normalize(nodeName);
+        for (List<String> assetUrls : listing.subMap(name, name + Character.MAX_VALUE).values())
+            urls.addAll(assetUrls);
+        return urls;
+    }
+
+    /**
+     * @param nodeType
+     * @return Whether assets exist for nodeType, and their listing hasn't been fetched yet.
+     */
+    public boolean isPending(String nodeType) {
+        synchronized (listings) {
+            return DIRECTORIES.containsKey(nodeType) && !listings.containsKey(nodeType);
+        }
+    }
+
+    /**
+     * @param fileName
+     * @return fileName without extension, normalized like a name.
+     */
+    private static String normalizeFileName(String fileName) {
+        int extension = fileName.lastIndexOf('.');
+        if (extension > 0)
+            fileName = fileName.substring(0, extension);
+        return normalize(fileName);
+    }
+
+    /**
+     * @param name
+     * @return name lower-cased, with underscores replaced by spaces.
+     */
+    private static String normalize(String name) {
+        return name.replace('_', ' ').trim().toLowerCase();
+    }
+}
@@ -0,0 +1,306 @@
+package me.mcofficer.james.tools;
+
+import me.mcofficer.james.gamedata.GameData;
+import me.mcofficer.james.gamedata.GameDataSnapshot;
+import me.mcofficer.james.gamedata.NodeView;
+
+import javax.annotation.CheckReturnValue;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The numeric attributes of all root nodes of one type (ships or outfits), stored column by column: every attribute
+ * is a double[] with one entry per node, NaN where a node doesn't have it. It is built from the game data's snapshot,
+ * and results are views into it.
+ * <p>
+ * A ship's attributes are the children of its {@code attributes} node; ship variants without one use their base
+ * ship's. An outfit's attributes are its own children, plus the children of its {@code weapon} node.
+ * Children whose value isn't a number (e.g. {@code category "Guns"}) are skipped.
+ * <p>
+ * Rankings filter and score whole columns in tight loops over primitive arrays, then keep only the best rows in a
+ * bounded heap, instead of sorting everything.
+ */
+public class AttributeTable {
+
+    private final GameData gameData;
+    private final String type;
+    /** The root id of every row. */
+    private final int[] ids;
+    private final Map<String, double[]> columns = new HashMap<>();
+
+    /**
+     * @param gameData
+     * @param type "ship" or "outfit".
+     */
+    public AttributeTable(GameData gameData, String type) {
+        this.gameData = gameData;
+        this.type = type;
+        GameDataSnapshot snapshot = gameData.getSnapshot();
+
+        List<Integer> rows = new ArrayList<>();
+        for (int root = 0; root < snapshot.getRootCount(); root++)
+            if (snapshot.getToken(root, 0).equals(type) && snapshot.getTokenCount(root) >= 2)
+                rows.add(root);
+        ids = rows.stream().mapToInt(Integer::intValue).toArray();
+
+        Map<String, Integer> baseShips = new HashMap<>();
+        List<Integer> variants = new ArrayList<>();
+        for (int row = 0; row < ids.length; row++) {
+            int attributes = type.equals("ship") ? findChild(snapshot, ids[row], "attributes") : ids[row];
+            if (attributes == -1) {
+                if (snapshot.getTokenCount(ids[row]) >= 3)
+                    variants.add(row);
+                continue;
+            }
+            if (snapshot.getTokenCount(ids[row]) == 2)
+                baseShips.putIfAbsent(snapshot.getToken(ids[row], 1), row);
+            addAttributes(snapshot, attributes, row);
+            if (type.equals("outfit")) {
+                int weapon = findChild(snapshot, ids[row], "weapon");
+                if (weapon != -1)
+                    addAttributes(snapshot, weapon, row);
+            }
+        }
+        for (int row : variants) {
+            Integer base = baseShips.get(snapshot.getToken(ids[row], 1));
+            if (base != null)
+                for (double[] column : columns.values())
+                    column[row] = column[base];
+        }
+    }
+
+    private void addAttributes(GameDataSnapshot snapshot, int node, int row) {
+        int firstChild = snapshot.getFirstChild(node);
+        for (int child = firstChild; child < firstChild + snapshot.getChildCount(node); child++) {
+            if (snapshot.getTokenCount(child) < 2)
+                continue;
+            double value = parseNumber(snapshot.getToken(child, 1));
+            if (Double.isNaN(value))
+                continue;
+            columns.computeIfAbsent(snapshot.getToken(child, 0), k -> {
+                double[] column = new double[ids.length];
+                Arrays.fill(column, Double.NaN);
+                return column;
+            })[row] = value;
+        }
+    }
+
+    private static int findChild(GameDataSnapshot snapshot, int node, String key) {
+        int firstChild = snapshot.getFirstChild(node);
+        for (int child = firstChild; child < firstChild + snapshot.getChildCount(node); child++)
+            if (snapshot.getToken(child, 0).equals(key))
+                return child;
+        return -1;
+    }
+
+    /**
+     * @param s
+     * @return s as a number, or NaN if it isn't one.
+     */
+    static double parseNumber(String s) {
+        if (s.isEmpty() || !(Character.isDigit(s.charAt(0)) || s.charAt(0) == '-' || s.charAt(0) == '.'))
+            return Double.NaN;
+        try {
+            return Double.parseDouble(s);
+        }
+        catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Ranks the nodes by an attribute, or by the ratio of two attributes.
+     * @param expression An attribute, e.g. "shields", or a ratio of two, e.g. "energy generation/mass".
+     * @param filters Only nodes matching all of these are ranked.
+     * @param ascending Whether the lowest values come first.
+     * @param limit The maximum number of rows to return.
+     * @return The best rows, best first. Nodes lacking an attribute are never included.
+     * @throws IllegalArgumentException If the expression or a filter uses an unknown attribute.
+     */
+    @CheckReturnValue
+    public List<Row> top(String expression, List<Filter> filters, boolean ascending, int limit) {
+        double[] values = evaluate(expression);
+        boolean[] mask = new boolean[ids.length];
+        Arrays.fill(mask, true);
+        for (Filter filter : filters)
+            filter.apply(evaluate(filter.expression), mask);
+
+        // The heap keeps the worst retained row at its root
+        int[] heap = new int[Math.min(limit, ids.length)];
+        int size = 0;
+        for (int row = 0; row < ids.length; row++) {
+            if (!mask[row] || Double.isNaN(values[row]))
+                continue;
+            if (size < heap.length) {
+                heap[size] = row;
+                siftUp(heap, size++, values, ascending);
+            }
+            else if (size > 0 && isBetter(row, heap[0], values, ascending)) {
+                heap[0] = row;
+                siftDown(heap, size, values, ascending);
+            }
+        }
+
+        List<Row> rows = new ArrayList<>(size);
+        for (int i = size - 1; i >= 0; i--) {
+            rows.add(new Row(gameData.getNode(ids[heap[0]]), values[heap[0]]));
+            heap[0] = heap[i];
+            siftDown(heap, i, values, ascending);
+        }
+        Collections.reverse(rows);
+        return rows;
+    }
+
+    /**
+     * @param expression An attribute, or two separated by a slash.
+     * @return The expression's value for every row. A fresh array if it had to be computed, do not modify it.
+     * @throws IllegalArgumentException If the expression uses an unknown attribute.
+     */
+    private double[] evaluate(String expression) {
+        int slash = expression.indexOf('/');
+        if (slash == -1)
+            return getColumn(expression.trim());
+
+        double[] dividends = getColumn(expression.substring(0, slash).trim());
+        double[] divisors = getColumn(expression.substring(slash + 1).trim());
+        double[] ratios = new double[ids.length];
+        for (int row = 0; row < ratios.length; row++)
+            ratios[row] = dividends[row] / divisors[row];
+        // x/0 isn't a meaningful ratio
+        for (int row = 0; row < ratios.length; row++)
+            if (Double.isInfinite(ratios[row]))
+                ratios[row] = Double.NaN;
+        return ratios;
+    }
+
+    private double[] getColumn(String attribute) {
+        double[] column = columns.get(attribute);
+        if (column == null)
+            throw new IllegalArgumentException(String.format("No %s has the attribute `%s`!", type, attribute));
+        return column;
+    }
+
+    private static void siftUp(int[] heap, int i, double[] values, boolean ascending) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!isBetter(heap[parent], heap[i], values, ascending))
+                return;
+            int swap = heap[i];
+            heap[i] = heap[parent];
+            heap[parent] = swap;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, double[] values, boolean ascending) {
+        int i = 0;
+        while (true) {
+            int worst = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++)
+                if (isBetter(heap[worst], heap[child], values, ascending))
+                    worst = child;
+            if (worst == i)
+                return;
+            int swap = heap[i];
+            heap[i] = heap[worst];
+            heap[worst] = swap;
+            i = worst;
+        }
+    }
+
+    /** Equal values are ordered by file order, which keeps rankings deterministic. */
+    private static boolean isBetter(int a, int b, double[] values, boolean ascending) {
+        if (values[a] != values[b])
+            return ascending ? values[a] < values[b] : values[a] > values[b];
+        return a < b;
+    }
+
+    /**
+     * @return The names of all attributes at least one node has, sorted.
+     */
+    public Set<String> getAttributes() {
+        return new TreeSet<>(columns.keySet());
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /** A ranked node, and its value of the ranked expression. */
+    public static class Row {
+
+        private final NodeView node;
+        private final double value;
+
+        private Row(NodeView node, double value) {
+            this.node = node;
+            this.value = value;
+        }
+
+        public NodeView getNode() {
+            return node;
+        }
+
+        public double getValue() {
+            return value;
+        }
+    }
+
+    /** A comparison of an attribute (or a ratio of two) with a constant, e.g. {@code cost<2000000}. */
+    public static class Filter {
+
+        private final static Pattern PATTERN = Pattern.compile("^(.+?)\\s*(<=|>=|!=|<|>|=)\\s*(-?[\\d.]+(?:e-?\\d+)?)$");
+
+        private final String expression;
+        private final String operator;
+        private final double value;
+
+        private Filter(String expression, String operator, double value) {
+            this.expression = expression;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        /**
+         * @param filter e.g. "cost<2000000" or "outfit space>=300".
+         * @return The parsed filter.
+         * @throws IllegalArgumentException If filter isn't a comparison.
+         */
+        public static Filter parse(String filter) {
+            Matcher matcher = PATTERN.matcher(filter.trim());
+            if (!matcher.matches())
+                throw new IllegalArgumentException(String.format("`%s` is not a filter like `cost<2000000`!", filter));
+            return new Filter(matcher.group(1).trim(), matcher.group(2), Double.parseDouble(matcher.group(3)));
+        }
+
+        /** Clears the rows of mask not matching this filter. Missing values never match. */
+        private void apply(double[] values, boolean[] mask) {
+            switch (operator) {
+                case "<":
+                    for (int row = 0; row < values.length; row++)
+                        mask[row] &= values[row] < value;
+                    break;
+                case "<=":
+                    for (int row = 0; row < values.length; row++)
+                        mask[row] &= values[row] <= value;
+                    break;
+                case ">":
+                    for (int row = 0; row < values.length; row++)
+                        mask[row] &= values[row] > value;
+                    break;
+                case ">=":
+                    for (int row = 0; row < values.length; row++)
+                        mask[row] &= values[row] >= value;
+                    break;
+                case "=":
+                    for (int row = 0; row < values.length; row++)
+                        mask[row] &= values[row] == value;
+                    break;
+                default:
+                    for (int row = 0; row < values.length; row++)
+                        mask[row] &= values[row] != value && !Double.isNaN(values[row]);
+            }
+        }
+    }
+}
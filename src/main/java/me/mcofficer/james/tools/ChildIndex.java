@@ -0,0 +1,65 @@
+package me.mcofficer.james.tools;
+
+import me.mcofficer.james.gamedata.GameData;
+import me.mcofficer.james.gamedata.GameDataSnapshot;
+import me.mcofficer.james.gamedata.NodeView;
+
+import javax.annotation.CheckReturnValue;
+import java.util.*;
+
+/**
+ * A secondary index over the direct children of all root nodes, mapping (root type, child key, child value) to the
+ * matching root nodes - e.g. ("government", "swizzle", "3") to all governments using swizzle 3.
+ * It is built from the game data's snapshot, and results are views into it.
+ * <p>
+ * The key of a child is its first token, the value its second one. Children without a value, and values longer than
+ * {@link #MAX_VALUE_LENGTH} (descriptions and the like), aren't indexed.
+ */
+public class ChildIndex {
+
+    private final static int MAX_VALUE_LENGTH = 100;
+
+    private final GameData gameData;
+    private final Map<String, int[]> roots = new HashMap<>();
+
+    public ChildIndex(GameData gameData) {
+        this.gameData = gameData;
+        GameDataSnapshot snapshot = gameData.getSnapshot();
+        Map<String, List<Integer>> matches = new HashMap<>();
+        for (int root = 0; root < snapshot.getRootCount(); root++) {
+            String type = snapshot.getToken(root, 0);
+            int firstChild = snapshot.getFirstChild(root);
+            for (int child = firstChild; child < firstChild + snapshot.getChildCount(root); child++) {
+                if (snapshot.getTokenCount(child) < 2 || snapshot.getToken(child, 1).length() > MAX_VALUE_LENGTH)
+                    continue;
+                List<Integer> ids = matches.computeIfAbsent(
+                        getKey(type, snapshot.getToken(child, 0), snapshot.getToken(child, 1)), k -> new ArrayList<>(1));
+                // Roots with duplicate children are only added once
+                if (ids.isEmpty() || ids.get(ids.size() - 1) != root)
+                    ids.add(root);
+            }
+        }
+        matches.forEach((key, ids) -> roots.put(key, ids.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * @param type The type of the root nodes, e.g. "government".
+     * @param key The first token of the child, e.g. "swizzle".
+     * @param value The second token of the child, e.g. "3".
+     * @return A possibly empty List of root nodes having such a child, in file order.
+     */
+    @CheckReturnValue
+    public List<NodeView> get(String type, String key, String value) {
+        int[] ids = roots.get(getKey(type, key, value));
+        if (ids == null)
+            return Collections.emptyList();
+        List<NodeView> nodes = new ArrayList<>(ids.length);
+        for (int id : ids)
+            nodes.add(gameData.getNode(id));
+        return nodes;
+    }
+
+    private static String getKey(String type, String key, String value) {
+        return type + '\0' + key + '\0' + value;
+    }
+}
@@ -0,0 +1,212 @@
+package me.mcofficer.james.tools;
+
+import me.mcofficer.james.gamedata.GameData;
+import me.mcofficer.james.gamedata.GameDataSnapshot;
+import me.mcofficer.james.tools.search.SearchIndex;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A structural diff between two versions of the game data.
+ * <p>
+ * Root nodes are matched by their tokens (type and name), children by their first token; nodes sharing those are
+ * matched in the order they appear in. Every node gets a 64 bit fingerprint of its tokens and its whole subtree, which
+ * is computed bottom-up in a single pass over each snapshot. Matched nodes with equal fingerprints are skipped without
+ * looking at their subtrees, so a diff takes time linear in the size of the data, plus the size of the changes.
+ * <p>
+ * Changes are written in the format of a unified diff: removed lines start with "-", added ones with "+", and the
+ * unchanged ancestors of changed nodes with a space. Nested nodes are indented by tabs.
+ */
+public class DataDiff {
+
+    private final static long FNV_OFFSET = 0xcbf29ce484222325L;
+    private final static long FNV_PRIME = 0x100000001b3L;
+
+    private final GameDataSnapshot before;
+    private final GameDataSnapshot after;
+    private final long[] beforePrints;
+    private final long[] afterPrints;
+
+    private int added;
+    private int removed;
+    private int changed;
+
+    public DataDiff(GameData before, GameData after) {
+        this.before = before.getSnapshot();
+        this.after = after.getSnapshot();
+        beforePrints = fingerprint(this.before);
+        afterPrints = fingerprint(this.after);
+    }
+
+    /**
+     * Children have higher ids than their parents, so visiting nodes by descending id sees every subtree before its
+     * root.
+     */
+    private static long[] fingerprint(GameDataSnapshot snapshot) {
+        long[] prints = new long[snapshot.getNodeCount()];
+        for (int node = prints.length - 1; node >= 0; node--) {
+            long hash = FNV_OFFSET;
+            for (int i = 0; i < snapshot.getTokenCount(node); i++) {
+                String token = snapshot.getToken(node, i);
+                for (int c = 0; c < token.length(); c++)
+                    hash = (hash ^ token.charAt(c)) * FNV_PRIME;
+                // Separates tokens, so that "a b" and "ab" differ
+                hash = (hash ^ 0x10000) * FNV_PRIME;
+            }
+            int firstChild = snapshot.getFirstChild(node);
+            for (int child = firstChild; child < firstChild + snapshot.getChildCount(node); child++)
+                hash = mix(hash * 31 + prints[child]);
+            prints[node] = hash;
+        }
+        return prints;
+    }
+
+    /** Spreads every input bit over the whole hash (the finalizer of MurmurHash3). */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe53ad863L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Writes the changes of all root nodes, or only of those matching query.
+     * @param query A root node's name, or type and name, e.g. "Falcon" or "ship Falcon". If no root node's is equal to
+     *              it, all root nodes containing it are diffed. Null to diff all of them.
+     * @param out
+     * @return Whether anything changed.
+     * @throws IOException If out throws.
+     */
+    public boolean write(@Nullable String query, Appendable out) throws IOException {
+        added = removed = changed = 0;
+        List<Integer> beforeRoots = getRoots(before, query);
+        List<Integer> afterRoots = getRoots(after, query);
+        if (query != null && beforeRoots.isEmpty() && afterRoots.isEmpty()) {
+            String normalized = SearchIndex.normalize(query);
+            beforeRoots = filterRoots(before, key -> key.contains(normalized));
+            afterRoots = filterRoots(after, key -> key.contains(normalized));
+        }
+        diffChildren(beforeRoots, afterRoots, 0, out);
+        return added + removed + changed > 0;
+    }
+
+    private static List<Integer> getRoots(GameDataSnapshot snapshot, @Nullable String query) {
+        if (query == null) {
+            List<Integer> roots = new ArrayList<>(snapshot.getRootCount());
+            for (int root = 0; root < snapshot.getRootCount(); root++)
+                roots.add(root);
+            return roots;
+        }
+        String normalized = SearchIndex.normalize(query);
+        return filterRoots(snapshot,
+                key -> key.equals(normalized) || key.substring(key.indexOf(' ') + 1).equals(normalized));
+    }
+
+    private static List<Integer> filterRoots(GameDataSnapshot snapshot, Predicate<String> filter) {
+        List<Integer> roots = new ArrayList<>();
+        for (int root = 0; root < snapshot.getRootCount(); root++)
+            if (filter.test(SearchIndex.normalize(String.join(" ", snapshot.getTokens(root)))))
+                roots.add(root);
+        return roots;
+    }
+
+    /**
+     * Matches the nodes beforeNodes and afterNodes by their keys, and writes the changes between them.
+     * Roots are keyed by all of their tokens, other nodes by their first one.
+     */
+    private void diffChildren(List<Integer> beforeNodes, List<Integer> afterNodes, int depth, Appendable out)
+            throws IOException {
+        // Maps every key to the after nodes having it, in order. Matched nodes are removed from the front.
+        Map<String, ArrayDeque<Integer>> unmatched = new HashMap<>();
+        for (int node : afterNodes)
+            unmatched.computeIfAbsent(getKey(after, node, depth), k -> new ArrayDeque<>()).add(node);
+
+        Set<Integer> matched = new HashSet<>();
+        for (int node : beforeNodes) {
+            ArrayDeque<Integer> candidates = unmatched.get(getKey(before, node, depth));
+            if (candidates == null || candidates.isEmpty()) {
+                writeSubtree(before, node, depth, '-', out);
+                if (depth == 0)
+                    removed++;
+                continue;
+            }
+            int partner = candidates.poll();
+            matched.add(partner);
+            if (beforePrints[node] != afterPrints[partner])
+                diffNode(node, partner, depth, out);
+        }
+        for (int node : afterNodes) {
+            if (matched.contains(node))
+                continue;
+            writeSubtree(after, node, depth, '+', out);
+            if (depth == 0)
+                added++;
+        }
+    }
+
+    /** Writes the changes between two matched nodes with different fingerprints. */
+    private void diffNode(int beforeNode, int afterNode, int depth, Appendable out) throws IOException {
+        if (depth == 0)
+            changed++;
+        List<String> beforeTokens = before.getTokens(beforeNode);
+        List<String> afterTokens = after.getTokens(afterNode);
+        if (beforeTokens.equals(afterTokens))
+            writeLine(' ', depth, beforeTokens, out);
+        else {
+            writeLine('-', depth, beforeTokens, out);
+            writeLine('+', depth, afterTokens, out);
+        }
+        diffChildren(getChildren(before, beforeNode), getChildren(after, afterNode), depth + 1, out);
+    }
+
+    private void writeSubtree(GameDataSnapshot snapshot, int node, int depth, char prefix, Appendable out)
+            throws IOException {
+        writeLine(prefix, depth, snapshot.getTokens(node), out);
+        for (int child : getChildren(snapshot, node))
+            writeSubtree(snapshot, child, depth + 1, prefix, out);
+    }
+
+    private static void writeLine(char prefix, int depth, List<String> tokens, Appendable out) throws IOException {
+        out.append('\n').append(prefix).append(' ');
+        for (int i = 0; i < depth; i++)
+            out.append('\t');
+        out.append(String.join(" ", tokens));
+    }
+
+    private static List<Integer> getChildren(GameDataSnapshot snapshot, int node) {
+        int firstChild = snapshot.getFirstChild(node);
+        List<Integer> children = new ArrayList<>(snapshot.getChildCount(node));
+        for (int child = firstChild; child < firstChild + snapshot.getChildCount(node); child++)
+            children.add(child);
+        return children;
+    }
+
+    private static String getKey(GameDataSnapshot snapshot, int node, int depth) {
+        return depth == 0 ? String.join("\0", snapshot.getTokens(node)) : snapshot.getToken(node, 0);
+    }
+
+    /**
+     * @return The number of root nodes added by the last {@link #write(String, Appendable)}.
+     */
+    public int getAdded() {
+        return added;
+    }
+
+    /**
+     * @return The number of root nodes removed by the last {@link #write(String, Appendable)}.
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return The number of root nodes changed by the last {@link #write(String, Appendable)}.
+     */
+    public int getChanged() {
+        return changed;
+    }
+}
@@ -0,0 +1,202 @@
+package me.mcofficer.james.tools;
+
+import me.mcofficer.james.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Checks which images have an @2x version in the hdpi repository, with bounded parallelism.
+ * <p>
+ * Every confirmed @2x image is reported as soon as its probe returns, so lookups improve progressively instead of all
+ * at once. Results are persisted to a cache file, and only probed again once they expire - found images rarely
+ * disappear, so their results are kept longer than those of missing ones. Probes that fail (e.g. time out) aren't
+ * cached at all.
+ */
+public class HiDpiProber {
+
+    private final static long FOUND_TTL = TimeUnit.DAYS.toMillis(30);
+    private final static long MISSING_TTL = TimeUnit.DAYS.toMillis(7);
+    private final static int TIMEOUT = 10000;
+    /** Number of probes after which the cache file is saved and progress is logged. */
+    private final static int SAVE_INTERVAL = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(HiDpiProber.class);
+    private final Path cacheFile;
+    private final int parallelism;
+    private final ConcurrentHashMap<String, Result> results = new ConcurrentHashMap<>();
+    private final AtomicInteger probed = new AtomicInteger();
+    private final AtomicInteger found = new AtomicInteger();
+    private volatile int total;
+    /** Incremented by every {@link #start(List, BiConsumer)}, so that probes of a cancelled run are ignored. */
+    private volatile int run;
+    private Thread thread;
+
+    /**
+     * @param cacheFile The file to persist results in. Existing results are loaded from it.
+     * @param parallelism The maximum number of concurrent probes.
+     */
+    public HiDpiProber(Path cacheFile, int parallelism) {
+        this.cacheFile = cacheFile;
+        this.parallelism = parallelism;
+        load();
+    }
+
+    /**
+     * Probes all images in the background. Images whose @2x version is known to exist are reported right away.
+     * Cancels the previous run, if it's still going - probes in flight finish, but aren't counted or reported.
+     * @param imagePaths The URLs of the 1x images.
+     * @param onFound Called with the 1x and @2x URL of every image that has an @2x version. Called concurrently.
+     */
+    public synchronized void start(List<String> imagePaths, BiConsumer<String, String> onFound) {
+        int run = ++this.run;
+        if (thread != null)
+            thread.interrupt();
+        thread = null;
+        total = imagePaths.size();
+        probed.set(0);
+        found.set(0);
+
+        long now = System.currentTimeMillis();
+        List<Callable<Void>> probes = new ArrayList<>();
+        for (String url : imagePaths) {
+            Result cached = results.get(url);
+            if (cached != null && cached.expiresAt > now) {
+                count(run, cached.found, url, onFound);
+                continue;
+            }
+            probes.add(() -> {
+                probe(run, url, onFound);
+                return null;
+            });
+        }
+        log.info(String.format("Probing %d of %d images for hdpi versions...", probes.size(), total));
+        if (probes.isEmpty())
+            return;
+
+        thread = new Thread(() -> {
+            ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+            try {
+                pool.invokeAll(probes);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finally {
+                pool.shutdownNow();
+            }
+            save();
+            if (run == this.run)
+                log.info(String.format("Hdpi probing finished, %d of %d images have a hdpi version.", found.get(), total));
+        }, "HiDpiProber");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void probe(int run, String url, BiConsumer<String, String> onFound) {
+        int status = Util.getHttpStatus(toHiDpiUrl(url), TIMEOUT);
+        if (status == 200 || status == 404)
+            results.put(url, new Result(status == 200, System.currentTimeMillis() + (status == 200 ? FOUND_TTL : MISSING_TTL)));
+        count(run, status == 200, url, onFound);
+    }
+
+    private void count(int run, boolean exists, String url, BiConsumer<String, String> onFound) {
+        if (run != this.run)
+            return;
+        if (exists) {
+            found.incrementAndGet();
+            onFound.accept(url, toHiDpiUrl(url));
+        }
+        int done = probed.incrementAndGet();
+        if (done % SAVE_INTERVAL == 0) {
+            log.info(String.format("Probed %d/%d images for hdpi versions", done, total));
+            save();
+        }
+    }
+
+    /**
+     * @return The number of images that have been checked so far, including those answered from the cache.
+     */
+    public int getProbed() {
+        return probed.get();
+    }
+
+    /**
+     * @return The number of images checked so far that have a hdpi version.
+     */
+    public int getFound() {
+        return found.get();
+    }
+
+    /**
+     * @return The number of images being checked.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @param url The URL of a 1x image.
+     * @return The URL its @2x version would have.
+     */
+    public static String toHiDpiUrl(String url) {
+        return url.replace("endless-sky/master", "endless-sky-high-dpi/master")
+                .replace(".png", "@2x.png");
+    }
+
+    /** Loads the cached results, one per line: "expiresAt found url". */
+    private void load() {
+        if (!Files.exists(cacheFile))
+            return;
+        try {
+            for (String line : Files.readAllLines(cacheFile, StandardCharsets.UTF_8)) {
+                String[] parts = line.split(" ", 3);
+                if (parts.length == 3)
+                    results.put(parts[2], new Result(parts[1].equals("1"), Long.parseLong(parts[0])));
+            }
+        }
+        catch (IOException | NumberFormatException e) {
+            log.warn("Failed to load the hdpi cache, probing everything again: " + e);
+            results.clear();
+        }
+    }
+
+    private synchronized void save() {
+        try {
+            Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+            Path temp = Files.createTempFile(cacheFile.toAbsolutePath().getParent(), "hidpi", ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Result> entry : results.entrySet()) {
+                    writer.write(entry.getValue().expiresAt + " " + (entry.getValue().found ? "1" : "0") + " " + entry.getKey());
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            log.warn("Failed to save the hdpi cache: " + e);
+        }
+    }
+
+    private static class Result {
+        private final boolean found;
+        private final long expiresAt;
+
+        private Result(boolean found, long expiresAt) {
+            this.found = found;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package me.mcofficer.james.tools;
+
+import javax.annotation.CheckForNull;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps sprite paths as used in the data files (e.g. "ship/falcon") to the best matching image URL.
+ * <p>
+ * Every URL is decoded once, and indexed by its path relative to the images directory, without file extension -
+ * both as is (e.g. "ship/falcon-0") and without "@2x" and frame suffixes (e.g. "ship/falcon"). If several URLs share a
+ * key, the one with the shortest file name wins, so a static sprite is preferred over the frames of an animation.
+ * <p>
+ * URLs can be upgraded (e.g. to their hdpi version) individually, without rebuilding the index.
+ */
+public class ImageIndex {
+
+    private final static String IMAGE_DIR = "/images/";
+
+    private final HashMap<String, String> bestUrls = new HashMap<>();
+    private final TreeMap<String, String> sortedBestUrls;
+    private final ConcurrentHashMap<String, String> upgrades = new ConcurrentHashMap<>();
+
+    public ImageIndex(List<String> imagePaths) {
+        for (String url : imagePaths) {
+            String relativePath = getRelativePath(url);
+            if (relativePath == null)
+                continue;
+            put(relativePath, url);
+            put(stripFrameSuffix(relativePath), url);
+        }
+        sortedBestUrls = new TreeMap<>(bestUrls);
+    }
+
+    private void put(String key, String url) {
+        bestUrls.merge(key, url, (current, candidate) ->
+                getFileName(candidate).length() < getFileName(current).length() ? candidate : current);
+    }
+
+    /** Finds the best URL for a sprite path. Falls back to the best URL among the paths starting with spritePath.
+     * @param spritePath A path relative to the images directory, without extension.
+     * @return A URL or null.
+     */
+    @CheckForNull
+    public String getUrl(String spritePath) {
+        String url = bestUrls.get(spritePath);
+        if (url != null)
+            return upgrades.getOrDefault(url, url);
+
+        String best = null;
+        for (String candidate : sortedBestUrls.subMap(spritePath, spritePath + Character.MAX_VALUE).values())
+            if (best == null || getFileName(candidate).length() < getFileName(best).length())
+                best = candidate;
+        return best == null ? null : upgrades.getOrDefault(best, best);
+    }
+
+    /** Makes {@link #getUrl(String)} return upgradedUrl wherever it would return url.
+     * @param url One of the URLs this index was built from.
+     * @param upgradedUrl
+     */
+    public void upgrade(String url, String upgradedUrl) {
+        upgrades.put(url, upgradedUrl);
+    }
+
+    /**
+     * @return The number of upgraded URLs.
+     */
+    public int getUpgradeCount() {
+        return upgrades.size();
+    }
+
+    public int size() {
+        return bestUrls.size();
+    }
+
+    /**
+     * @param url
+     * @return The decoded path of url relative to the images directory, without extension, or null if url doesn't
+     * point into an images directory.
+     */
+    @CheckForNull
+    private static String getRelativePath(String url) {
+        String decoded;
+        try {
+            // '+' separates animation frames in file names, URLDecoder would turn it into a space
+            decoded = URLDecoder.decode(url.replace("+", "%2B"), StandardCharsets.UTF_8.name());
+        }
+        catch (UnsupportedEncodingException e) { //Should never happen since UTF-8 is from StandardCharsets
+            e.printStackTrace();
+            return null;
+        }
+        int start = decoded.indexOf(IMAGE_DIR);
+        if (start == -1)
+            return null;
+        String path = decoded.substring(start + IMAGE_DIR.length());
+        int extension = path.lastIndexOf('.');
+        return extension > path.lastIndexOf('/') ? path.substring(0, extension) : path;
+    }
+
+    /**
+     * @param path
+     * @return path without a trailing "@2x" and animation frame suffix ("-0", "+12", "~3", "=1", "^2").
+     */
+    private static String stripFrameSuffix(String path) {
+        if (path.endsWith("@2x"))
+            path = path.substring(0, path.length() - 3);
+        int i = path.length();
+        while (i > 0 && Character.isDigit(path.charAt(i - 1)))
+            i--;
+        if (i < path.length() && i > 0 && "-+~=^".indexOf(path.charAt(i - 1)) != -1)
+            return path.substring(0, i - 1);
+        return path;
+    }
+
+    private static String getFileName(String url) {
+        return url.substring(url.lastIndexOf('/'));
+    }
+}
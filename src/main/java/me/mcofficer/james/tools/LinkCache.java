@@ -0,0 +1,73 @@
+package me.mcofficer.james.tools;
+
+import javax.annotation.CheckForNull;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the online references compiled by {@link Lookups#getLinks(me.mcofficer.james.gamedata.NodeView)},
+ * keyed by node type and name.
+ * <p>
+ * Nodes without any links are cached as well (negative caching), but expire sooner. Results that are incomplete
+ * because a probe failed or timed out are only kept briefly, so the probe gets retried soon.
+ */
+public class LinkCache {
+
+    private final static long TTL = TimeUnit.HOURS.toMillis(12);
+    private final static long NEGATIVE_TTL = TimeUnit.HOURS.toMillis(1);
+    private final static long INCOMPLETE_TTL = TimeUnit.MINUTES.toMillis(5);
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param type
+     * @param name
+     * @return The cached links (possibly empty), or null if there are none or they expired.
+     */
+    @CheckForNull
+    public String get(String type, String name) {
+        String key = getKey(type, name);
+        Entry entry = entries.get(key);
+        if (entry == null)
+            return null;
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.links;
+    }
+
+    /**
+     * @param type
+     * @param name
+     * @param links The compiled links, possibly empty.
+     * @param complete Whether every probe returned an answer.
+     */
+    public void put(String type, String name, String links, boolean complete) {
+        long ttl = !complete ? INCOMPLETE_TTL : links.isEmpty() ? NEGATIVE_TTL : TTL;
+        entries.put(getKey(type, name), new Entry(links, System.currentTimeMillis() + ttl));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static String getKey(String type, String name) {
+        return type + '\0' + name;
+    }
+
+    private static class Entry {
+
+        private final String links;
+        private final long expiresAt;
+
+        Entry(String links, long expiresAt) {
+            this.links = links;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
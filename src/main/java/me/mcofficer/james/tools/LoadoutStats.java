@@ -0,0 +1,172 @@
+package me.mcofficer.james.tools;
+
+import me.mcofficer.james.gamedata.GameData;
+import me.mcofficer.james.gamedata.GameDataSnapshot;
+import me.mcofficer.james.gamedata.NodeView;
+
+import javax.annotation.CheckForNull;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes the stats of ships as equipped: the ship's {@code attributes} plus the attributes of every outfit in its
+ * {@code outfits} block, times their count. Ship variants without their own attributes or outfits use their base
+ * ship's. From the totals, the values the game displays are derived - top speed, acceleration and turning.
+ * <p>
+ * Outfits are resolved by name, against the first outfit of that name. Every ship's (and outfit's) stats are computed
+ * once and then memoized; since an instance belongs to one {@link Lookups}, that is once per game data version.
+ */
+public class LoadoutStats {
+
+    /** The game runs at 60 frames per second, and attributes are given per frame. */
+    private final static double FPS = 60.;
+
+    private final GameData gameData;
+    private final GameDataSnapshot snapshot;
+    private final Map<String, Integer> outfits = new HashMap<>();
+    private final Map<String, Integer> baseShips = new HashMap<>();
+    private final ConcurrentHashMap<Integer, Stats> ships = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Map<String, Double>> outfitAttributes = new ConcurrentHashMap<>();
+
+    public LoadoutStats(GameData gameData) {
+        this.gameData = gameData;
+        snapshot = gameData.getSnapshot();
+        for (int root = 0; root < snapshot.getRootCount(); root++) {
+            if (snapshot.getTokenCount(root) != 2)
+                continue;
+            if (snapshot.getToken(root, 0).equals("outfit"))
+                outfits.putIfAbsent(snapshot.getToken(root, 1), root);
+            else if (snapshot.getToken(root, 0).equals("ship"))
+                baseShips.putIfAbsent(snapshot.getToken(root, 1), root);
+        }
+    }
+
+    /**
+     * @param ship A ship node.
+     * @return The ship's stats, or null if node isn't a ship.
+     */
+    @CheckForNull
+    public Stats get(NodeView ship) {
+        int id = ship.getId();
+        if (id >= snapshot.getRootCount() || snapshot.getTokenCount(id) < 2 || !snapshot.getToken(id, 0).equals("ship"))
+            return null;
+        return ships.computeIfAbsent(id, this::compute);
+    }
+
+    private Stats compute(int ship) {
+        int attributes = findChild(ship, "attributes");
+        int outfitList = findChild(ship, "outfits");
+        Integer base = snapshot.getTokenCount(ship) >= 3 ? baseShips.get(snapshot.getToken(ship, 1)) : null;
+        if (base != null && attributes == -1)
+            attributes = findChild(base, "attributes");
+        if (base != null && outfitList == -1)
+            outfitList = findChild(base, "outfits");
+
+        Map<String, Double> totals = new TreeMap<>();
+        if (attributes != -1)
+            totals.putAll(parseAttributes(attributes));
+        List<String> missing = new ArrayList<>();
+        if (outfitList != -1) {
+            int firstChild = snapshot.getFirstChild(outfitList);
+            for (int child = firstChild; child < firstChild + snapshot.getChildCount(outfitList); child++) {
+                String name = snapshot.getToken(child, 0);
+                Integer outfit = outfits.get(name);
+                if (outfit == null) {
+                    missing.add(name);
+                    continue;
+                }
+                double count = snapshot.getTokenCount(child) >= 2
+                        ? AttributeTable.parseNumber(snapshot.getToken(child, 1)) : 1.;
+                if (Double.isNaN(count))
+                    count = 1.;
+                Map<String, Double> outfitStats = outfitAttributes.computeIfAbsent(outfit, this::parseAttributes);
+                for (Map.Entry<String, Double> attribute : outfitStats.entrySet())
+                    totals.merge(attribute.getKey(), attribute.getValue() * count, Double::sum);
+            }
+        }
+        return new Stats(gameData.getNode(ship), totals, missing);
+    }
+
+    /**
+     * @param node
+     * @return The numeric values of node's children, by their key.
+     */
+    private Map<String, Double> parseAttributes(int node) {
+        Map<String, Double> attributes = new HashMap<>();
+        int firstChild = snapshot.getFirstChild(node);
+        for (int child = firstChild; child < firstChild + snapshot.getChildCount(node); child++) {
+            if (snapshot.getTokenCount(child) < 2)
+                continue;
+            double value = AttributeTable.parseNumber(snapshot.getToken(child, 1));
+            if (!Double.isNaN(value))
+                attributes.merge(snapshot.getToken(child, 0), value, Double::sum);
+        }
+        return attributes;
+    }
+
+    private int findChild(int node, String key) {
+        int firstChild = snapshot.getFirstChild(node);
+        for (int child = firstChild; child < firstChild + snapshot.getChildCount(node); child++)
+            if (snapshot.getToken(child, 0).equals(key))
+                return child;
+        return -1;
+    }
+
+    /** The stats of an equipped ship. */
+    public static class Stats {
+
+        private final NodeView ship;
+        private final Map<String, Double> attributes;
+        private final List<String> missingOutfits;
+
+        private Stats(NodeView ship, Map<String, Double> attributes, List<String> missingOutfits) {
+            this.ship = ship;
+            this.attributes = Collections.unmodifiableMap(attributes);
+            this.missingOutfits = Collections.unmodifiableList(missingOutfits);
+        }
+
+        public NodeView getShip() {
+            return ship;
+        }
+
+        /**
+         * @return The summed attributes of the ship and its outfits, sorted by name.
+         */
+        public Map<String, Double> getAttributes() {
+            return attributes;
+        }
+
+        /**
+         * @return The names of outfits that aren't defined anywhere, and thus aren't included.
+         */
+        public List<String> getMissingOutfits() {
+            return missingOutfits;
+        }
+
+        /**
+         * @return The top speed in pixels per second, or NaN without thrust or drag.
+         */
+        public double getTopSpeed() {
+            return FPS * get("thrust") / get("drag");
+        }
+
+        /**
+         * @return The acceleration in pixels per second squared, or NaN without thrust or mass.
+         */
+        public double getAcceleration() {
+            return FPS * FPS * get("thrust") / get("mass");
+        }
+
+        /**
+         * @return The turn rate in degrees per second, or NaN without turn or mass.
+         */
+        public double getTurning() {
+            return FPS * get("turn") / get("mass");
+        }
+
+        private double get(String attribute) {
+            double value = attributes.getOrDefault(attribute, 0.);
+            return value == 0. ? Double.NaN : value;
+        }
+    }
+}
@@ -1,175 +1,272 @@
 package me.mcofficer.james.tools;
 
-import me.mcofficer.esparser.DataFile;
-import me.mcofficer.esparser.DataNode;
 import me.mcofficer.james.Util;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.simmetrics.StringMetric;
-import org.simmetrics.metrics.StringMetrics;
+import me.mcofficer.james.gamedata.GameData;
+import me.mcofficer.james.gamedata.NodeView;
+import me.mcofficer.james.tools.search.NodeSearcher;
+import me.mcofficer.james.tools.search.QueryCache;
+import me.mcofficer.james.tools.search.SearchIndex;
+import me.mcofficer.james.tools.search.SearchQuery;
+import me.mcofficer.james.tools.search.TextIndex;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.CheckReturnValue;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.nio.charset.StandardCharsets;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 public class Lookups {
 
-    final ArrayList<DataFile> dataFiles;
-    ArrayList<String> imagePaths;
+    /** The timeout for every request probing whether a link exists, in milliseconds. Also the deadline for all of
+     * them together, including the time spent waiting for a free thread. */
+    private final static int PROBE_TIMEOUT = 3000;
+    private final static String TRUNCATION_MARKER = "\n...";
+    private final static ExecutorService linkProbes = Executors.newFixedThreadPool(8, runnable -> {
+        Thread thread = new Thread(runnable, "LinkProbe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    final GameData gameData;
+    final SearchIndex searchIndex;
+    final ChildIndex childIndex;
+    final ReferenceGraph referenceGraph;
+    final Map<String, AttributeTable> attributeTables = new HashMap<>();
+    final LoadoutStats loadoutStats;
+    final NodeSearcher nodeSearcher;
+    final TextIndex textIndex;
+    final QueryCache queryCache;
+    final LinkCache linkCache = new LinkCache();
+    final AssetListings assetListings;
+    final ArrayList<String> imagePaths;
+    final ImageIndex imageIndex;
 
-    public Lookups(ArrayList<DataFile> dataFiles, ArrayList<String> imagePaths) {
-        this.dataFiles = dataFiles;
-        this.imagePaths = imagePaths;
+    /**
+     * @param gameData The game data, including the (initial) image paths.
+     * @param searchPriority The node types searched first by queries without a type prefix, e.g. ship and outfit.
+     * @param queryCache The cache for {@link #getNodesByString(String)}. May be shared with other instances.
+     * @param assetListings The (started) asset listings used by {@link #getLinks(NodeView)}.
+     */
+    public Lookups(GameData gameData, List<String> searchPriority, QueryCache queryCache, AssetListings assetListings) {
+        this(gameData, searchPriority, queryCache, assetListings, new TextIndex.SegmentCache());
+    }
+
+    /**
+     * @param gameData The game data, including the (initial) image paths.
+     * @param searchPriority The node types searched first by queries without a type prefix, e.g. ship and outfit.
+     * @param queryCache The cache for {@link #getNodesByString(String)}. May be shared with other instances.
+     * @param assetListings The (started) asset listings used by {@link #getLinks(NodeView)}.
+     * @param segmentCache The text index segments of previous game data, see {@link TextIndex}. Share it between
+     *                     the instances for subsequent versions, so that only changed data files are indexed again.
+     */
+    public Lookups(GameData gameData, List<String> searchPriority, QueryCache queryCache, AssetListings assetListings,
+                   TextIndex.SegmentCache segmentCache) {
+        this.gameData = gameData;
+        imagePaths = gameData.getImagePaths();
+        imageIndex = new ImageIndex(imagePaths);
+        this.queryCache = queryCache;
+        this.assetListings = assetListings;
+        searchIndex = new SearchIndex(gameData);
+        childIndex = new ChildIndex(gameData);
+        referenceGraph = new ReferenceGraph(gameData);
+        for (String type : new String[]{"ship", "outfit"})
+            attributeTables.put(type, new AttributeTable(gameData, type));
+        loadoutStats = new LoadoutStats(gameData);
+        nodeSearcher = new NodeSearcher(searchIndex, ForkJoinPool.commonPool(), searchPriority);
+        textIndex = new TextIndex(gameData, segmentCache);
     }
 
     /**
      * Compiles online references for the given Node, which can be used in Embeds.
+     * The availability of all references is probed concurrently, and the result is cached, see {@link LinkCache}.
+     * Source files are taken from the {@link AssetListings}.
      * @param node  The Node in question.
      * @return      A String containing markdown links (may be empty)
      */
-    public String getLinks(DataNode node) {
-        StringBuilder stringBuilder = new StringBuilder();
-
+    public String getLinks(NodeView node) {
         String nodeName = String.join(" ", node.getTokens().subList(1, node.getTokens().size()));
         String nodeType = node.getTokens().get(0);
 
+        String cached = linkCache.get(nodeType, nodeName);
+        if (cached != null)
+            return cached;
+
+        // Maps the URL to probe to the markdown link added if it exists
+        Map<String, String> probes = new LinkedHashMap<>();
+
         // endless-sky.7vn.io/endless-ships/
         if (nodeType.equals("outfit")) {
             String url = "http://endless-sky.7vn.io/outfits/" + nodeName.replace(" ", "-").toLowerCase();
-            if (Util.getHttpStatus(url) == 200)
-                stringBuilder.append(String.format("[\"%s\" on 7vn.io](%s)\n", nodeName, url));
+            probes.put(url, String.format("[\"%s\" on 7vn.io](%s)\n", nodeName, url));
         }
         else if (nodeType.equals("ship")) {
             String url = "http://endless-sky.7vn.io/ships/" + nodeName.replace(" ", "-").toLowerCase();
-            if (Util.getHttpStatus(url) == 200)
-                stringBuilder.append(String.format("[\"%s\" on 7vn.io](%s)\n", nodeName, url));
+            probes.put(url, String.format("[\"%s\" on 7vn.io](%s)\n", nodeName, url));
         }
 
         // bunker.tejat.net/endless-ships | bunker.tejat.net/endless-outfits
         if (nodeType.equals("outfit")) {
             String url = "https://bunker.tejat.net/endless-outfits/"
                     + nodeName.replace(" ", "_").replace("-", "_").toLowerCase() + ".html";
-            if (Util.getHttpStatus(url) == 200)
-                stringBuilder.append(String.format("[\"%s\" on bunker.tejat.net](%s)\n", nodeName, url));
+            probes.put(url, String.format("[\"%s\" on bunker.tejat.net](%s)\n", nodeName, url));
         }
         else if (nodeType.equals("ship")) {
             String url = "https://bunker.tejat.net/endless-ships/"
                     + nodeName.replace(" ", "_").replace("-", "_").toLowerCase() + ".html";
-            if (Util.getHttpStatus(url) == 200)
-                stringBuilder.append(String.format("[\"%s\" on bunker.tejat.net](%s)\n", nodeName, url));
+            probes.put(url, String.format("[\"%s\" on bunker.tejat.net](%s)\n", nodeName, url));
         }
 
         // endlesssky.mcofficer.me/ship_gallery/
         if (nodeType.equals("ship")) {
             String base_url = "https://endlesssky.mcofficer.me/ship_gallery/";
             String file = "assets/" + nodeName.toLowerCase().replace(" ", "%20") + ".json";
-            if (Util.getHttpStatus(base_url + file) == 200)
-                stringBuilder.append(String.format("[View the %s model in 3D](%swebplayer.html?load=%s)\n", nodeName, base_url, file));
+            probes.put(base_url + file, String.format("[View the %s model in 3D](%swebplayer.html?load=%s)\n", nodeName, base_url, file));
+        }
+
+        List<CompletableFuture<Integer>> statuses = new ArrayList<>();
+        for (String url : probes.keySet())
+            // A probe that misses the deadline counts as failed, like one that timed out
+            statuses.add(CompletableFuture.supplyAsync(() -> Util.getHttpStatus(url, PROBE_TIMEOUT), linkProbes)
+                    .completeOnTimeout(0, PROBE_TIMEOUT, TimeUnit.MILLISECONDS));
+
+        StringBuilder stringBuilder = new StringBuilder();
+        boolean complete = true;
+        Iterator<String> links = probes.values().iterator();
+        for (CompletableFuture<Integer> status : statuses) {
+            String link = links.next();
+            int s = status.join();
+            if (s == 200)
+                stringBuilder.append(link);
+            else if (s < 100) // the probe failed, see Util#getHttpStatus
+                complete = false;
         }
 
         // endlesssky.mcofficer.me/assets/
-        for (String link : getAssetsUrls(node))
+        for (String link : assetListings.getUrls(nodeType, nodeName))
             stringBuilder.append(String.format("[%s](%s)\n", link.substring(link.lastIndexOf('/') + 1).replace("%20", " "), link));
+        if (assetListings.isPending(nodeType))
+            complete = false;
 
         //TODO: endless-sky.wikia.com
 
+        linkCache.put(nodeType, nodeName, stringBuilder.toString(), complete);
         return stringBuilder.toString();
     }
 
     /**
-     * Attempts to fetch the source files corresponding with the DataNode node from endlesssky.mcofficer.me/assets/
-     * @param node
-     * @return A possibly-empty list of download URLs.
+     * Returns all DataNodes that <br>
+     *     a) are of the type "government" and <br>
+     *     b) have a subnode of the type "swizzle", whose value matches the swizzle parameter.
+     * @param swizzle an Integer
+     * @return A List of DataNodes
+     */
+    public List<NodeView> getGovernmentsBySwizzle(int swizzle) {
+        return childIndex.get("government", "swizzle", String.valueOf(swizzle));
+    }
+
+    /**
+     * Returns all root DataNodes of the given type having a child node whose first two tokens are key and value.
+     * @param type e.g. "government"
+     * @param key e.g. "swizzle"
+     * @param value e.g. "3"
+     * @return A possibly empty, unmodifiable List of DataNodes.
      */
     @CheckReturnValue
-    private List<String> getAssetsUrls(DataNode node) {
-        String dirUrl = "https://endlesssky.mcofficer.me/assets/assets%20for%20endless%20sky/";
-        String nodeType = node.getTokens().get(0);
-        String nodeName = String.join(" ", node.getTokens().subList(1, node.getTokens().size()));
-        List<String> returnUrls = new ArrayList<>();
-
-        if (nodeType.equals("ship"))
-            dirUrl += "ships/";
-        else if (nodeType.equals("outfit"))
-            dirUrl += "outfits/";
-        else if (nodeType.equals("projectile"))
-            dirUrl += "projectiles/";
-        else
-            return returnUrls;
-
-        Document doc;
-        try {
-            doc = Jsoup.connect(dirUrl).get();
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-            return returnUrls;
-        }
+    public List<NodeView> getNodesByChild(String type, String key, String value) {
+        return childIndex.get(type, key, value);
+    }
 
-        for (Element link : doc.body().getElementsByTag("pre").get(0).children()) {
-            if (link.text().toLowerCase().contains(nodeName.toLowerCase()))
-                returnUrls.add(link.attr("abs:href"));
-        }
+    /**
+     * Returns all root Nodes referencing the given Node, e.g. the ships carrying an outfit or the fleets including a
+     * ship. See {@link ReferenceGraph} for what counts as a reference.
+     * @param node A root Node, usually a ship, outfit, government, system or planet.
+     * @return A possibly empty List of root Nodes, in file order.
+     */
+    @CheckReturnValue
+    public List<NodeView> getReferencingNodes(NodeView node) {
+        return referenceGraph.getReferencing(node);
+    }
 
-        return returnUrls;
+    /**
+     * @param type "ship" or "outfit".
+     * @return The numeric attributes of all Nodes of that type, or null if they aren't indexed.
+     */
+    @CheckForNull
+    public AttributeTable getAttributeTable(String type) {
+        return attributeTables.get(type);
     }
 
     /**
-     * Searches through all DataNodes and returns any that <br>
-     *     a) are of the type "government" and <br>
-     *     b) have a subnode of the type "swizzle", whose value matches the swizzle parameter.
-     * @param swizzle an Integer
-     * @return A List of DataNodes
+     * @param ship A ship Node.
+     * @return The ship's stats including its outfits, memoized. Null if the Node isn't a ship.
      */
-    public List<DataNode> getGovernmentsBySwizzle(int swizzle) {
-        List<DataNode> governments = new ArrayList<>();
-        for (DataFile file : dataFiles)
-            for (DataNode node : file.getNodes())
-                if (node.getTokens().get(0).equals("government"))
-                    for (DataNode child : node.getChildren())
-                        if (child.getTokens().get(0).equals("swizzle") && child.getTokens().get(1).equals(String.valueOf(swizzle)))
-                            governments.add(node);
-        return governments;
+    @CheckForNull
+    public LoadoutStats.Stats getShipStats(NodeView ship) {
+        return loadoutStats.get(ship);
     }
 
     /** Searches through the datafiles and returns 10 or less Nodes matching the query.
+     * If the query is a Node's name, or a prefix of only one Node's name, just that Node is returned.
+     * Otherwise, only Nodes sharing enough trigrams with the query are scored, unless there are none - then all Nodes are.
+     * A query like "ship:Falcon" or 'outfit:"Heavy Laser"' only searches Nodes of that type.
+     * Results are cached, see {@link QueryCache}.
+     * @param query
+     * @return A possibly empty, unmodifiable List of Nodes.
+     */
+    @CheckReturnValue
+    public List<NodeView> getNodesByString(String query) {
+        return queryCache.get(gameData.getVersion(), query, () -> nodeSearcher.search(query, false));
+    }
+
+    /** Like {@link #getNodesByString(String)}, but scores every single Node.
      * @param query
      * @return A possibly empty List of Nodes.
      */
     @CheckReturnValue
-    public List<DataNode> getNodesByString(String query) {
-        Map<DataNode, Float> matches = new HashMap<>();
-        for (DataFile file : dataFiles) {
-            for (DataNode node : file.getNodes()) {
-                StringMetric metric = StringMetrics.needlemanWunch();
-                String tokens = String.join(" ", node.getTokens()).trim();
-                matches.put(node, metric.compare(query.toLowerCase(), tokens.toLowerCase()));
-            }
-        }
-        // Sort in descending order & limit to 10 results
-        return matches.entrySet().stream()
-                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                .limit(10)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+    public List<NodeView> getNodesByStringFullScan(String query) {
+        return nodeSearcher.search(query, true);
+    }
+
+    /** Searches the text of all root Nodes for words, ranked by BM25, see {@link TextIndex}.
+     * A query like "ship:freighter" only searches Nodes of that type.
+     * @param query
+     * @param allText Whether to search all of a Node's text, instead of only its descriptions.
+     * @return A possibly empty List of 10 or less Nodes, best match first.
+     */
+    @CheckReturnValue
+    public List<NodeView> getNodesByText(String query, boolean allText) {
+        SearchQuery parsed = SearchQuery.parse(query, searchIndex);
+        String text = parsed.getType() == null ? query : new String(parsed.getText());
+        return textIndex.search(text, parsed.getType(), allText, 10);
     }
 
-    public String getNodeAsText(DataNode node) {
-        return printNodeRecursive(node);
+    /** Renders a node and all of its children as text, see {@link NodeRenderer}.
+     * @param node
+     * @return The rendered text.
+     */
+    public String getNodeAsText(NodeView node) {
+        return NodeRenderer.render(node);
     }
 
-    private String printNodeRecursive(DataNode node) {
+    /** Like {@link #getNodeAsText(NodeView)}, but stops rendering before the text gets longer than budget.
+     * @param node
+     * @param budget The maximum length of the text, including the "\n..." marking truncated text.
+     * @return The rendered text, ending with "\n..." if it was truncated.
+     */
+    public String getNodeAsText(NodeView node, int budget) {
         StringBuilder sb = new StringBuilder();
-        sb.append("\n")
-                .append(String.join(" ", node.getTokens()).trim());
-        for(DataNode child : node.getChildren())
-            sb.append("\t\t")
-                    .append(printNodeRecursive(child).replace("\n", "\n\t"));
+        try {
+            if (!NodeRenderer.render(node, sb, budget - TRUNCATION_MARKER.length()))
+                sb.append(TRUNCATION_MARKER);
+        }
+        catch (IOException e) { // StringBuilder doesn't throw
+            throw new UncheckedIOException(e);
+        }
         return sb.toString();
     }
 
@@ -178,7 +275,7 @@ public class Lookups {
      * @return A String[] possibly containing null.
      */
     @CheckReturnValue
-    public String[] getLookupByNode(DataNode node) {
+    public String[] getLookupByNode(NodeView node) {
         return new String[]{getImageUrl(node, true), getDescription(node)};
     }
 
@@ -187,8 +284,8 @@ public class Lookups {
      * @return A String or null.
      */
     @CheckForNull
-    private String getDescription(DataNode node) {
-        DataNode descNode = getDescriptionChildNode(node);
+    private String getDescription(NodeView node) {
+        NodeView descNode = getDescriptionChildNode(node);
         if (descNode == null)
             return null;
         return String.join(" ", descNode.getTokens().subList(1, descNode.getTokens().size()));
@@ -200,26 +297,12 @@ public class Lookups {
      * @return A String or null.
      */
     @CheckForNull
-    public String getImageUrl(DataNode node, boolean thumbnail) {
-        DataNode imageNode = getImageChildNode(node, thumbnail);
+    public String getImageUrl(NodeView node, boolean thumbnail) {
+        NodeView imageNode = getImageChildNode(node, thumbnail);
         if (imageNode == null)
             return null;
         String path = String.join(" ", imageNode.getTokens().subList(1, imageNode.getTokens().size()));
-        String bestMatch = null;
-        try {
-            // Find the shortest possible image url containing `path`
-            for (String imagePath : imagePaths) {
-                String decoded = java.net.URLDecoder.decode(imagePath, StandardCharsets.UTF_8.name());
-                if (decoded.contains(path) &&
-                        (bestMatch == null ? Integer.MAX_VALUE : bestMatch.substring(bestMatch.lastIndexOf('/')).length())
-                                > imagePath.substring(imagePath.lastIndexOf('/')).length())
-                    bestMatch = imagePath;
-            }
-        }
-        catch (UnsupportedEncodingException e) { //Should never happen since UTF-8 is from StandardCharsets
-            e.printStackTrace();
-        }
-        return bestMatch;
+        return imageIndex.getUrl(path);
     }
 
     /** Searches a Node for a description Subnode.
@@ -227,8 +310,8 @@ public class Lookups {
      * @return The Subnode containing the description.
      */
     @CheckForNull
-    private DataNode getDescriptionChildNode(DataNode node) {
-        for (DataNode child : node.getChildren()) {
+    private NodeView getDescriptionChildNode(NodeView node) {
+        for (NodeView child : node.getChildren()) {
             String identifier = child.getTokens().get(0);
             if (identifier.equals("description"))
                 return child;
@@ -242,15 +325,15 @@ public class Lookups {
      * @return The Subnode containing the relative image path.
      */
     @CheckForNull
-    private DataNode getImageChildNode(DataNode node, boolean thumbnail) {
-        DataNode imageNode = null;
+    private NodeView getImageChildNode(NodeView node, boolean thumbnail) {
+        NodeView imageNode = null;
 
         if (thumbnail)
             imageNode = getThumbnailChildNode(node);
         if (imageNode != null)
             return imageNode;
 
-        for (DataNode child : node.getChildren()) {
+        for (NodeView child : node.getChildren()) {
             String identifier = child.getTokens().get(0);
             if (identifier.equals("sprite") || identifier.equals("landscape"))
                 return child;
@@ -263,13 +346,13 @@ public class Lookups {
     }
 
     /** Searches a Node for an image Subnode of the type thumbnail.
-     * If you want to fallback to sprites/landscapes if no thumbnail exists, use {@link #getImageChildNode(DataNode, boolean)}.
+     * If you want to fallback to sprites/landscapes if no thumbnail exists, use {@link #getImageChildNode(NodeView, boolean)}.
      * @param node
      * @return The Subnode containing the relative image path.
      */
     @CheckForNull
-    private DataNode getThumbnailChildNode(DataNode node) {
-        for (DataNode child : node.getChildren())
+    private NodeView getThumbnailChildNode(NodeView node) {
+        for (NodeView child : node.getChildren())
             if (child.getTokens().get(0).equals("thumbnail"))
                 return child;
         return null;
@@ -279,11 +362,23 @@ public class Lookups {
         return imagePaths;
     }
 
-    public void setImagePaths(ArrayList<String> imagePaths) {
-        this.imagePaths = imagePaths;
+    /** Makes {@link #getImageUrl(NodeView, boolean)} return upgradedUrl instead of url, e.g. for hdpi images.
+     * @param url One of the image paths.
+     * @param upgradedUrl
+     */
+    public void upgradeImage(String url, String upgradedUrl) {
+        imageIndex.upgrade(url, upgradedUrl);
+    }
+
+    public GameData getGameData() {
+        return gameData;
+    }
+
+    public String getDataVersion() {
+        return gameData.getVersion();
     }
 
-    public ArrayList<DataFile> getDataFiles() {
-        return dataFiles;
+    public QueryCache getQueryCache() {
+        return queryCache;
     }
 }
@@ -0,0 +1,104 @@
+package me.mcofficer.james.tools;
+
+import me.mcofficer.james.gamedata.GameData;
+import me.mcofficer.james.gamedata.GameDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Holds the current {@link Lookups}, and replaces them when the game data changes.
+ * <p>
+ * New Lookups (and their indexes) are built off to the side and then published at once, so {@link #get()} never
+ * blocks. Callers should call it once per command and keep using the instance they got - it is never modified, so
+ * a command that started before a reload simply finishes with the old data.
+ */
+public class LookupsReloader implements Supplier<Lookups> {
+
+    private final Logger log = LoggerFactory.getLogger(LookupsReloader.class);
+    private final Path dir;
+    private final GameDataSource source;
+    private final Function<GameData, Lookups> factory;
+    private final List<Consumer<Lookups>> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private volatile Lookups lookups;
+
+    /**
+     * @param dir The directory to keep game data snapshots in.
+     * @param source
+     * @param factory Creates the Lookups for a version of the game data.
+     */
+    public LookupsReloader(Path dir, GameDataSource source, Function<GameData, Lookups> factory) {
+        this.dir = dir;
+        this.source = source;
+        this.factory = factory;
+    }
+
+    /**
+     * @return The current Lookups, or null if {@link #reload()} didn't succeed yet.
+     */
+    @Override
+    public Lookups get() {
+        return lookups;
+    }
+
+    /**
+     * @param listener Called with every new Lookups, before they are published.
+     */
+    public void addListener(Consumer<Lookups> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Loads the latest game data, and publishes new Lookups if it changed. Only changed data files are parsed again.
+     * @return Whether new Lookups were published.
+     * @throws IOException If the game data couldn't be loaded. The current Lookups stay in place.
+     */
+    public synchronized boolean reload() throws IOException {
+        Lookups current = lookups;
+        GameData previous = current == null ? null : current.getGameData();
+        GameData gameData = GameData.load(dir, source, previous);
+        if (gameData == previous)
+            return false;
+
+        long start = System.currentTimeMillis();
+        Lookups next = factory.apply(gameData);
+        for (Consumer<Lookups> listener : listeners)
+            listener.accept(next);
+        lookups = next;
+        log.info(String.format("Published Lookups for game data %s (indexed in %dms)", gameData.getVersion(),
+                System.currentTimeMillis() - start));
+        return true;
+    }
+
+    /**
+     * Calls {@link #reload()} periodically, in the background.
+     * @param interval
+     * @param unit
+     */
+    public void start(long interval, TimeUnit unit) {
+        scheduler.scheduleWithFixedDelay(this::tryReload, interval, interval, unit);
+    }
+
+    /**
+     * Like {@link #reload()}, but only logs failures. Useful as a callback.
+     */
+    public void tryReload() {
+        try {
+            reload();
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn("Failed to reload the game data: " + e);
+        }
+    }
+}
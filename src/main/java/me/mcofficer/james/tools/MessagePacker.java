@@ -0,0 +1,186 @@
+package me.mcofficer.james.tools;
+
+import net.dv8tion.jda.core.entities.MessageChannel;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Packs text appended to it into as few Discord messages as possible, each wrapped in a header and footer (e.g. code
+ * fences).
+ * <p>
+ * Messages are filled up to the length limit and split at the last line break that fits. A line longer than a whole
+ * message is split inside it, and the next message reopens the header, so fences stay balanced.
+ * If a file name is given, output that would take more than maxMessages messages is sent as a single file attachment
+ * instead - messages are held back until {@link #send()} for that. Otherwise, every message is sent as soon as it's full.
+ */
+public class MessagePacker implements Appendable {
+
+    public final static int MESSAGE_LIMIT = 2000;
+
+    private final Consumer<String> messageSink;
+    private final BiConsumer<byte[], String> fileSink;
+    private final String header;
+    private final String footer;
+    private final int bodyLimit;
+    private final int maxMessages;
+    private final String fileName;
+
+    private final StringBuilder body = new StringBuilder();
+    private final List<String> pending = new ArrayList<>();
+    private ByteArrayOutputStream file;
+    private Writer fileWriter;
+
+    /**
+     * @param channel
+     * @param header Prefixes every message.
+     * @param footer Ends every message.
+     * @param maxMessages The maximum number of messages before falling back to a file attachment.
+     * @param fileName The name of the file attachment, or null to never fall back to one.
+     * @throws IllegalArgumentException If header and footer leave no room for any text.
+     */
+    public MessagePacker(MessageChannel channel, String header, String footer, int maxMessages, @Nullable String fileName) {
+        this(message -> channel.sendMessage(message).queue(), (data, name) -> channel.sendFile(data, name, null).queue(),
+                header, footer, maxMessages, fileName);
+    }
+
+    /** Packs text into messages, without ever falling back to a file attachment.
+     * @param channel
+     * @param header
+     * @param footer
+     */
+    public MessagePacker(MessageChannel channel, String header, String footer) {
+        this(channel, header, footer, 0, null);
+    }
+
+    /** Packs text for arbitrary sinks instead of a channel, e.g. to benchmark it.
+     * @param messageSink Receives every message.
+     * @param fileSink Receives the file attachment's content and name.
+     * @param header
+     * @param footer
+     * @param maxMessages
+     * @param fileName
+     */
+    public MessagePacker(Consumer<String> messageSink, BiConsumer<byte[], String> fileSink, String header,
+                         String footer, int maxMessages, @Nullable String fileName) {
+        this.messageSink = messageSink;
+        this.fileSink = fileSink;
+        this.header = header;
+        this.footer = footer;
+        this.bodyLimit = MESSAGE_LIMIT - header.length() - footer.length();
+        this.maxMessages = maxMessages;
+        this.fileName = fileName;
+        if (bodyLimit <= 0)
+            throw new IllegalArgumentException("Header and footer exceed the message length limit");
+    }
+
+    @Override
+    public MessagePacker append(CharSequence csq) {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public MessagePacker append(CharSequence csq, int start, int end) {
+        while (start < end) {
+            if (file != null) {
+                writeToFile(csq, start, end);
+                return this;
+            }
+            int room = bodyLimit - body.length();
+            if (end - start <= room) {
+                body.append(csq, start, end);
+                return this;
+            }
+            body.append(csq, start, start + room);
+            start += room;
+            flushFullBody();
+        }
+        return this;
+    }
+
+    @Override
+    public MessagePacker append(char c) {
+        return append(String.valueOf(c));
+    }
+
+    /**
+     * Sends everything appended so far - as messages, or as a file if there'd be too many of them.
+     */
+    public void send() {
+        if (body.length() > 0) {
+            String message = body.toString();
+            body.setLength(0);
+            if (file == null)
+                emit(message);
+            else
+                writeToFile(message, 0, message.length());
+        }
+        if (file != null) {
+            try {
+                fileWriter.flush();
+            }
+            catch (IOException e) { // ByteArrayOutputStream doesn't throw
+                throw new UncheckedIOException(e);
+            }
+            fileSink.accept(file.toByteArray(), fileName);
+            file = null;
+            return;
+        }
+        for (String message : pending)
+            messageSink.accept(header + message + footer);
+        pending.clear();
+    }
+
+    /** Emits the full body up to its last line break, or all of it if it's a single line. The rest stays in body,
+     * unless emitting it switched to a file - then the rest goes into the file as well.
+     */
+    private void flushFullBody() {
+        int cut = body.lastIndexOf("\n");
+        if (cut <= 0) {
+            cut = body.length();
+            if (Character.isHighSurrogate(body.charAt(cut - 1)))
+                cut--;
+        }
+        String message = body.substring(0, cut);
+        body.delete(0, cut);
+        emit(message);
+        if (file != null) {
+            writeToFile(body, 0, body.length());
+            body.setLength(0);
+        }
+    }
+
+    /** Sends message, or holds it back if a file name is given. Switches to a file once there are too many of them. */
+    private void emit(String message) {
+        if (fileName == null) {
+            messageSink.accept(header + message + footer);
+            return;
+        }
+        pending.add(message);
+        if (pending.size() > maxMessages) {
+            file = new ByteArrayOutputStream();
+            fileWriter = new OutputStreamWriter(file, StandardCharsets.UTF_8);
+            for (String p : pending)
+                writeToFile(p, 0, p.length());
+            pending.clear();
+        }
+    }
+
+    private void writeToFile(CharSequence csq, int start, int end) {
+        try {
+            fileWriter.append(csq, start, end);
+        }
+        catch (IOException e) { // ByteArrayOutputStream doesn't throw
+            throw new UncheckedIOException(e);
+        }
+    }
+}
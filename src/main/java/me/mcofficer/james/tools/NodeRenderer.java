@@ -0,0 +1,71 @@
+package me.mcofficer.james.tools;
+
+import me.mcofficer.james.gamedata.NodeView;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+
+/**
+ * Renders nodes as indented text, one line per node, in a single pass over the subtree.
+ * <p>
+ * Every line starts with a newline and one tab per level of depth; every child is preceded by two tabs at the end of
+ * the previous line. Output is written straight into an Appendable, and rendering stops before the first line that
+ * would exceed the budget, so only as much of a huge node is visited as is actually shown.
+ */
+public class NodeRenderer {
+
+    /** Renders node and its whole subtree.
+     * @param node
+     * @return The rendered text.
+     */
+    public static String render(NodeView node) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            render(node, sb, Integer.MAX_VALUE);
+        }
+        catch (IOException e) { // StringBuilder doesn't throw
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /** Renders node and its subtree into out, stopping before the first line that doesn't fit into budget.
+     * @param node
+     * @param out
+     * @param budget The maximum number of chars to append.
+     * @return Whether the whole subtree was rendered.
+     * @throws IOException If out throws.
+     */
+    public static boolean render(NodeView node, Appendable out, int budget) throws IOException {
+        ArrayDeque<NodeView> nodes = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        nodes.push(node);
+        depths.push(0);
+        int written = 0;
+
+        while (!nodes.isEmpty()) {
+            NodeView current = nodes.pop();
+            int depth = depths.pop();
+
+            String text = String.join(" ", current.getTokens()).trim();
+            int length = (depth > 0 ? 2 : 0) + 1 + depth + text.length();
+            if (length > budget - written)
+                return false;
+
+            if (depth > 0)
+                out.append("\t\t");
+            out.append('\n');
+            for (int i = 0; i < depth; i++)
+                out.append('\t');
+            out.append(text);
+            written += length;
+
+            for (int i = current.getChildCount() - 1; i >= 0; i--) {
+                nodes.push(current.getChild(i));
+                depths.push(depth + 1);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,157 @@
+package me.mcofficer.james.tools;
+
+import me.mcofficer.james.gamedata.GameData;
+import me.mcofficer.james.gamedata.GameDataSnapshot;
+import me.mcofficer.james.gamedata.NodeView;
+
+import javax.annotation.CheckReturnValue;
+import java.util.*;
+
+/**
+ * The reverse references between root nodes, e.g. from an outfit to every ship carrying it, or from a government to
+ * every fleet and mission using it. It is built from the game data's snapshot, and results are views into it.
+ * <p>
+ * Only ships, outfits, governments, systems and planets are referenced. A node is named by its last token, so ship
+ * variants like {@code ship "Bactrian" "Bactrian (Hai)"} are found by their variant name. References are recognized
+ * by the key of the node containing them:
+ * <ul>
+ *     <li>{@code government "Republic"}, {@code link "Sol"}, {@code object "Earth"}... reference their value
+ *     (see {@link #VALUE_REFERENCES})</li>
+ *     <li>the children of {@code outfits}, {@code variant}, {@code outfitter} and {@code shipyard} reference their
+ *     first token (see {@link #CHILD_REFERENCES})</li>
+ *     <li>a ship variant references its base ship</li>
+ * </ul>
+ * Hardpoints ({@code gun}, {@code turret}) aren't followed, since the outfits mounted on them are listed under the
+ * ship's {@code outfits} as well.
+ * <p>
+ * The graph is stored as two int arrays: the referencing root ids, grouped by the referenced root, and the start of
+ * every root's group.
+ */
+public class ReferenceGraph {
+
+    /** Maps the key of a node to the type of the node its second token references. */
+    private final static Map<String, String> VALUE_REFERENCES = Map.of(
+            "ship", "ship",
+            "outfit", "outfit",
+            "government", "government",
+            "system", "system",
+            "planet", "planet",
+            "link", "system",
+            "object", "planet");
+    /** Maps the key of a node to the type of the nodes its children's first tokens reference. */
+    private final static Map<String, String> CHILD_REFERENCES = Map.of(
+            "outfits", "outfit",
+            "variant", "ship",
+            "outfitter", "outfit",
+            "shipyard", "ship");
+
+    private final GameData gameData;
+    /** The referencing roots of root i are sources[offsets[i]] to sources[offsets[i + 1] - 1]. */
+    private final int[] offsets;
+    private final int[] sources;
+
+    public ReferenceGraph(GameData gameData) {
+        this.gameData = gameData;
+        GameDataSnapshot snapshot = gameData.getSnapshot();
+        int rootCount = snapshot.getRootCount();
+        Set<String> types = new HashSet<>(VALUE_REFERENCES.values());
+
+        Map<String, List<Integer>> targets = new HashMap<>();
+        for (int root = 0; root < rootCount; root++) {
+            int tokenCount = snapshot.getTokenCount(root);
+            String type = snapshot.getToken(root, 0);
+            if (tokenCount >= 2 && types.contains(type))
+                targets.computeIfAbsent(getKey(type, snapshot.getToken(root, tokenCount - 1)), k -> new ArrayList<>(1))
+                        .add(root);
+        }
+
+        Edges edges = new Edges();
+        ArrayDeque<Integer> nodes = new ArrayDeque<>();
+        for (int root = 0; root < rootCount; root++) {
+            String type = snapshot.getToken(root, 0);
+            if (type.equals("ship") && snapshot.getTokenCount(root) >= 3)
+                addReferences(targets, "ship", snapshot.getToken(root, 1), root, edges);
+
+            nodes.push(root);
+            while (!nodes.isEmpty()) {
+                int node = nodes.pop();
+                int firstChild = snapshot.getFirstChild(node);
+                int childCount = snapshot.getChildCount(node);
+                String key = snapshot.getToken(node, 0);
+                String valueType = VALUE_REFERENCES.get(key);
+                if (node != root && valueType != null && snapshot.getTokenCount(node) >= 2)
+                    addReferences(targets, valueType, snapshot.getToken(node, 1), root, edges);
+                String childType = CHILD_REFERENCES.get(key);
+                for (int child = firstChild; child < firstChild + childCount; child++) {
+                    if (childType != null)
+                        addReferences(targets, childType, snapshot.getToken(child, 0), root, edges);
+                    nodes.push(child);
+                }
+            }
+        }
+
+        long[] sorted = edges.toSortedArray();
+        offsets = new int[rootCount + 1];
+        int[] sources = new int[sorted.length];
+        int sourceCount = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            // A root referencing the same node several times is only added once
+            if (i > 0 && sorted[i] == sorted[i - 1])
+                continue;
+            offsets[(int) (sorted[i] >>> 32) + 1]++;
+            sources[sourceCount++] = (int) sorted[i];
+        }
+        for (int i = 0; i < rootCount; i++)
+            offsets[i + 1] += offsets[i];
+        this.sources = Arrays.copyOf(sources, sourceCount);
+    }
+
+    private static void addReferences(Map<String, List<Integer>> targets, String type, String name, int source,
+                                      Edges edges) {
+        List<Integer> ids = targets.get(getKey(type, name));
+        if (ids == null)
+            return;
+        for (int target : ids)
+            if (target != source)
+                edges.add(target, source);
+    }
+
+    /**
+     * @param node A root node.
+     * @return A possibly empty List of the root nodes referencing node, in file order.
+     */
+    @CheckReturnValue
+    public List<NodeView> getReferencing(NodeView node) {
+        int id = node.getId();
+        if (id >= offsets.length - 1)
+            return Collections.emptyList();
+        List<NodeView> nodes = new ArrayList<>(offsets[id + 1] - offsets[id]);
+        for (int i = offsets[id]; i < offsets[id + 1]; i++)
+            nodes.add(gameData.getNode(sources[i]));
+        return nodes;
+    }
+
+    private static String getKey(String type, String name) {
+        return type + '\0' + name;
+    }
+
+    /** A growable list of references, each packed into a long as (target << 32 | source). */
+    private static class Edges {
+
+        private long[] edges = new long[1024];
+        private int size;
+
+        void add(int target, int source) {
+            if (size == edges.length)
+                edges = Arrays.copyOf(edges, size * 2);
+            edges[size++] = ((long) target << 32) | source;
+        }
+
+        /** @return The references, grouped by target and then sorted by source. */
+        long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(edges, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package me.mcofficer.james.tools.search;
+
+import javax.annotation.CheckReturnValue;
+import java.util.Arrays;
+
+/**
+ * A compressed prefix trie over the names (the normalized tokens after the type) of a set of nodes of a
+ * {@link SearchIndex}.
+ * <p>
+ * Every edge is labelled with the longest run of chars its names share, so the trie has at most twice as many
+ * nodes as there are distinct names, and a lookup takes one comparison per char of the query. Every trie node knows
+ * how many nodes are named like its subtree, which makes unique prefixes as cheap to find as exact names.
+ */
+public class NameTrie {
+
+    private final static int[] NO_IDS = new int[0];
+
+    private final SearchIndex index;
+    private final TrieNode root;
+
+    /**
+     * @param index
+     * @param ids The nodes to include. Nodes without a name are skipped.
+     */
+    public NameTrie(SearchIndex index, int[] ids) {
+        this.index = index;
+        Integer[] named = Arrays.stream(ids)
+                .filter(id -> index.getNameStart(id) < index.getKey(id).length)
+                .boxed()
+                .sorted((a, b) -> compare(a, b) != 0 ? compare(a, b) : Integer.compare(a, b))
+                .toArray(Integer[]::new);
+        root = named.length == 0 ? null : build(named, 0, named.length, 0);
+    }
+
+    /**
+     * @param query A normalized name.
+     * @return The ascending ids of all nodes named exactly query. Possibly empty, do not modify it.
+     */
+    @CheckReturnValue
+    public int[] getExact(char[] query) {
+        TrieNode node = locate(query, true);
+        return node == null ? NO_IDS : node.ids;
+    }
+
+    /**
+     * @param query A normalized prefix.
+     * @return The id of the only node whose name starts with query, or -1 if there is none or there are several.
+     */
+    @CheckReturnValue
+    public int getUniquePrefix(char[] query) {
+        TrieNode node = locate(query, false);
+        return node == null || node.size != 1 ? -1 : node.anyId;
+    }
+
+    /**
+     * @param query
+     * @param exact Whether query has to end exactly at the returned node, or may end within its label.
+     * @return The topmost trie node whose path starts with query, or null if there is none.
+     */
+    private TrieNode locate(char[] query, boolean exact) {
+        TrieNode node = root;
+        int depth = 0;
+        while (node != null) {
+            char[] label = node.label;
+            int matched = 0;
+            while (matched < label.length && depth < query.length && label[matched] == query[depth]) {
+                matched++;
+                depth++;
+            }
+            if (depth == query.length)
+                return matched == label.length || !exact ? node : null;
+            if (matched < label.length)
+                return null;
+            int edge = Arrays.binarySearch(node.edges, query[depth]);
+            node = edge < 0 ? null : node.children[edge];
+        }
+        return null;
+    }
+
+    /**
+     * Builds the subtree of names[from] to names[to - 1], which share their first depth chars and are sorted.
+     */
+    private TrieNode build(Integer[] names, int from, int to, int depth) {
+        // Sorted names share a prefix if and only if the first and last one do
+        int end = depth + commonPrefixLength(names[from], names[to - 1], depth);
+        char[] label = Arrays.copyOfRange(index.getKey(names[from]), index.getNameStart(names[from]) + depth,
+                index.getNameStart(names[from]) + end);
+
+        // Names ending here sort first
+        int exactEnd = from;
+        while (exactEnd < to && getNameLength(names[exactEnd]) == end)
+            exactEnd++;
+        int[] ids = exactEnd == from ? NO_IDS : new int[exactEnd - from];
+        for (int i = from; i < exactEnd; i++)
+            ids[i - from] = names[i];
+
+        int childCount = 0;
+        for (int i = exactEnd; i < to; i++)
+            if (i == exactEnd || getChar(names[i], end) != getChar(names[i - 1], end))
+                childCount++;
+        char[] edges = new char[childCount];
+        TrieNode[] children = new TrieNode[childCount];
+        for (int i = exactEnd, child = 0; i < to; child++) {
+            int groupEnd = i + 1;
+            while (groupEnd < to && getChar(names[groupEnd], end) == getChar(names[i], end))
+                groupEnd++;
+            edges[child] = getChar(names[i], end);
+            children[child] = build(names, i, groupEnd, end);
+            i = groupEnd;
+        }
+        return new TrieNode(label, edges, children, ids, to - from, names[from]);
+    }
+
+    private int commonPrefixLength(int a, int b, int depth) {
+        int length = Math.min(getNameLength(a), getNameLength(b)) - depth;
+        int i = 0;
+        while (i < length && getChar(a, depth + i) == getChar(b, depth + i))
+            i++;
+        return i;
+    }
+
+    private int compare(int a, int b) {
+        char[] keyA = index.getKey(a);
+        char[] keyB = index.getKey(b);
+        return Arrays.compare(keyA, index.getNameStart(a), keyA.length, keyB, index.getNameStart(b), keyB.length);
+    }
+
+    private int getNameLength(int id) {
+        return index.getKey(id).length - index.getNameStart(id);
+    }
+
+    private char getChar(int id, int position) {
+        return index.getKey(id)[index.getNameStart(id) + position];
+    }
+
+    private static class TrieNode {
+
+        /** The chars between the parent and this node. Only the root's label may be empty. */
+        private final char[] label;
+        /** The first char of every child's label, ascending. */
+        private final char[] edges;
+        private final TrieNode[] children;
+        /** The ascending ids of the nodes named exactly like the path to this node. */
+        private final int[] ids;
+        /** The number of nodes named like this subtree. */
+        private final int size;
+        /** Any node named like this subtree - the only one, if size is 1. */
+        private final int anyId;
+
+        private TrieNode(char[] label, char[] edges, TrieNode[] children, int[] ids, int size, int anyId) {
+            this.label = label;
+            this.edges = edges;
+            this.children = children;
+            this.ids = ids;
+            this.size = size;
+            this.anyId = anyId;
+        }
+    }
+}
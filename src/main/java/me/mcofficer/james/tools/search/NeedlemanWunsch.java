@@ -0,0 +1,104 @@
+package me.mcofficer.james.tools.search;
+
+/**
+ * A Needleman-Wunsch similarity scorer for char arrays, using the same costs as simmetrics' default
+ * {@code StringMetrics.needlemanWunch()} (match +1, mismatch -2, gap -2).
+ * <p>
+ * The raw alignment score is normalized into [0, 1] relative to the best and worst possible score of two strings of
+ * that length. Only two rows of the DP matrix are kept, and those are reused between calls, so scoring does not
+ * allocate once the rows have grown to the longest key. Instances are not thread-safe, use {@link #get()}.
+ */
+public class NeedlemanWunsch {
+
+    public final static float MATCH = 1f;
+    public final static float MISMATCH = -2f;
+    public final static float GAP = -2f;
+
+    private final static ThreadLocal<NeedlemanWunsch> instances = ThreadLocal.withInitial(NeedlemanWunsch::new);
+
+    private float[] previous = new float[64];
+    private float[] current = new float[64];
+
+    private NeedlemanWunsch() {}
+
+    /**
+     * @return The scorer instance of the current thread.
+     */
+    public static NeedlemanWunsch get() {
+        return instances.get();
+    }
+
+    /**
+     * @param a
+     * @param b
+     * @return The normalized similarity of a and b, between 0 (nothing in common) and 1 (equal).
+     */
+    public float similarity(char[] a, char[] b) {
+        return similarity(a, b, 0);
+    }
+
+    /**
+     * @param a
+     * @param b
+     * @param bFrom The index of the first char of b to compare.
+     * @return The normalized similarity of a and b[bFrom..], between 0 (nothing in common) and 1 (equal).
+     */
+    public float similarity(char[] a, char[] b, int bFrom) {
+        int maxLength = Math.max(a.length, b.length - bFrom);
+        if (maxLength == 0)
+            return 1f;
+        float best = maxLength * MATCH;
+        float worst = maxLength * Math.min(MISMATCH, GAP);
+        return (align(a, b, bFrom) - worst) / (best - worst);
+    }
+
+    /**
+     * An upper bound of {@link #similarity(char[], char[])} that only depends on the lengths of the compared strings:
+     * At best, every char of the shorter string is a match, and the length difference is made up with gaps.
+     * With the default costs, this comes down to the ratio of the shorter to the longer length.
+     * @param aLength
+     * @param bLength
+     * @return The highest similarity two strings of these lengths can possibly have.
+     */
+    public static float upperBound(int aLength, int bLength) {
+        int maxLength = Math.max(aLength, bLength);
+        if (maxLength == 0)
+            return 1f;
+        int minLength = Math.min(aLength, bLength);
+        float best = maxLength * MATCH;
+        float worst = maxLength * Math.min(MISMATCH, GAP);
+        return (minLength * MATCH + (maxLength - minLength) * GAP - worst) / (best - worst);
+    }
+
+    /**
+     * @param a
+     * @param b
+     * @param bFrom
+     * @return The raw global alignment score of a and b[bFrom..].
+     */
+    private float align(char[] a, char[] b, int bFrom) {
+        int columns = b.length - bFrom;
+        if (previous.length <= columns) {
+            previous = new float[columns + 1];
+            current = new float[columns + 1];
+        }
+        float[] previous = this.previous;
+        float[] current = this.current;
+
+        for (int j = 0; j <= columns; j++)
+            previous[j] = j * GAP;
+        for (int i = 1; i <= a.length; i++) {
+            current[0] = i * GAP;
+            char c = a[i - 1];
+            for (int j = 1; j <= columns; j++) {
+                float diagonal = previous[j - 1] + (c == b[bFrom + j - 1] ? MATCH : MISMATCH);
+                float gap = Math.max(previous[j], current[j - 1]) + GAP;
+                current[j] = Math.max(diagonal, gap);
+            }
+            float[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[columns];
+    }
+}
@@ -0,0 +1,276 @@
+package me.mcofficer.james.tools.search;
+
+import me.mcofficer.james.gamedata.NodeView;
+
+import javax.annotation.CheckReturnValue;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Scores the nodes of a {@link SearchIndex} against a query in parallel.
+ * <p>
+ * Queries restricted to a type (see {@link SearchQuery}) only search that type's partition, and are compared to the
+ * nodes' names. Unqualified queries are compared to the whole key, and search the partitions in priority order,
+ * stopping early once a partition yields a near-exact match.
+ * <p>
+ * Within a partition, the work is split recursively across a ForkJoinPool. Every leaf keeps only its best
+ * {@link #MAX_RESULTS} nodes in a {@link TopK}, which are merged on the way back up, so memory use per query does not
+ * depend on the amount of game data. Nodes are scored with the allocation-free {@link NeedlemanWunsch} scorer against
+ * their precomputed keys.
+ * <p>
+ * Nodes whose {@link NeedlemanWunsch#upperBound(int, int) upper bound} can't beat the current 10th best score are
+ * never scored: Every leaf visits its nodes in descending order of their bound, and stops once the bound drops below
+ * the best known 10th score, which all leaves of a query share. This doesn't change the results.
+ * <p>
+ * Before any of that, the query is looked up in a {@link NameTrie} of the searched nodes' names. A node named exactly
+ * like the query, or the only node whose name starts with it, is returned on its own without scoring anything.
+ */
+public class NodeSearcher {
+
+    public final static int MAX_RESULTS = 10;
+    /** Unqualified searches stop after a partition whose best match scores at least this much. */
+    public final static float NEAR_EXACT_SCORE = 0.95f;
+    /** Leaves score at most this many nodes. */
+    private final static int LEAF_SIZE = 1024;
+
+    private final SearchIndex index;
+    private final ForkJoinPool pool;
+    private final int[] partitionOrder;
+    /** The position of every partition in partitionOrder. */
+    private final int[] partitionRanks;
+    private final NameTrie names;
+    private final NameTrie[] partitionNames;
+
+    /**
+     * @param index
+     * @param pool
+     * @param typePriority The types unqualified queries search first, in that order. Unlisted types follow in the
+     *                     order they first appear in the data.
+     */
+    public NodeSearcher(SearchIndex index, ForkJoinPool pool, List<String> typePriority) {
+        this.index = index;
+        this.pool = pool;
+
+        Set<Integer> order = new LinkedHashSet<>();
+        for (String type : typePriority) {
+            int partition = index.getPartitionIndex(SearchIndex.normalize(type));
+            if (partition != -1)
+                order.add(partition);
+        }
+        for (int partition = 0; partition < index.getTypes().size(); partition++)
+            order.add(partition);
+        partitionOrder = order.stream().mapToInt(Integer::intValue).toArray();
+        partitionRanks = new int[partitionOrder.length];
+        for (int rank = 0; rank < partitionOrder.length; rank++)
+            partitionRanks[partitionOrder[rank]] = rank;
+
+        names = new NameTrie(index, IntStream.range(0, index.size()).toArray());
+        partitionNames = new NameTrie[partitionOrder.length];
+        for (int partition = 0; partition < partitionNames.length; partition++)
+            partitionNames[partition] = new NameTrie(index, index.getPartition(partition));
+    }
+
+    /** Finds the best matching nodes for query.
+     * @param query A raw query, possibly prefixed with a type.
+     * @param fullScan Whether to score every node of the searched partitions, instead of only the trigram candidates.
+     *                 Also skips the name trie.
+     * @return A possibly empty List of at most {@link #MAX_RESULTS} Nodes, best match first. A single Node if the
+     * query is a node's name or a unique prefix of one.
+     */
+    @CheckReturnValue
+    public List<NodeView> search(String query, boolean fullScan) {
+        SearchQuery searchQuery = SearchQuery.parse(query, index);
+        if (!fullScan) {
+            int match = findByName(searchQuery);
+            if (match != -1)
+                return Collections.singletonList(index.getNode(match));
+        }
+
+        int[] candidates = fullScan ? new int[0] : index.getCandidates(searchQuery.getText());
+
+        TopK best = new TopK(MAX_RESULTS);
+        if (searchQuery.getType() != null) {
+            int partition = index.getPartitionIndex(searchQuery.getType());
+            int[] ids = filterByPartition(candidates, partition);
+            best.merge(searchPartition(searchQuery, ids.length == 0 ? index.getPartition(partition) : ids, best));
+        }
+        else {
+            for (int partition : partitionOrder) {
+                int[] ids = candidates.length == 0 ? index.getPartition(partition) : filterByPartition(candidates, partition);
+                if (ids.length == 0)
+                    continue;
+                TopK partitionBest = searchPartition(searchQuery, ids, best);
+                best.merge(partitionBest);
+                if (isNearExact(searchQuery, partitionBest))
+                    break;
+            }
+        }
+
+        List<NodeView> results = new ArrayList<>(best.size());
+        for (int id : best.toSortedIds())
+            results.add(index.getNode(id));
+        return results;
+    }
+
+    /**
+     * Looks the query up in the name trie of the searched partition, or of all nodes if it is unqualified.
+     * If several nodes of different types are named exactly like the query, the type searched first wins.
+     * @param query
+     * @return The id of the node named like query, or else of the only node whose name starts with it, or -1.
+     */
+    private int findByName(SearchQuery query) {
+        char[] text = query.getText();
+        if (text.length == 0)
+            return -1;
+        NameTrie trie = query.getType() == null ? names : partitionNames[index.getPartitionIndex(query.getType())];
+
+        int best = -1;
+        for (int id : trie.getExact(text))
+            if (best == -1 || partitionRanks[index.getPartitionOf(id)] < partitionRanks[index.getPartitionOf(best)])
+                best = id;
+        return best != -1 ? best : trie.getUniquePrefix(text);
+    }
+
+    /**
+     * @param query
+     * @param ids Node ids of a single partition, sorted by {@link SearchIndex#sortByKeyLength(int[])}.
+     * @param best The best results so far, only used to skip hopeless nodes.
+     * @return The best nodes among ids.
+     */
+    private TopK searchPartition(SearchQuery query, int[] ids, TopK best) {
+        Threshold threshold = new Threshold(best.getThreshold());
+        return pool.invoke(new SearchTask(query, ids, 0, ids.length, threshold));
+    }
+
+    /**
+     * @param candidates Ascending node ids.
+     * @param partition
+     * @return The candidates belonging to the partition, sorted by {@link SearchIndex#sortByKeyLength(int[])}.
+     */
+    private int[] filterByPartition(int[] candidates, int partition) {
+        int count = 0;
+        for (int id : candidates)
+            if (index.getPartitionOf(id) == partition)
+                count++;
+        int[] filtered = new int[count];
+        for (int i = 0, j = 0; j < count; i++)
+            if (index.getPartitionOf(candidates[i]) == partition)
+                filtered[j++] = candidates[i];
+        index.sortByKeyLength(filtered);
+        return filtered;
+    }
+
+    /**
+     * A match is near-exact if it scores at least {@link #NEAR_EXACT_SCORE}, or if its name equals the query.
+     */
+    private boolean isNearExact(SearchQuery query, TopK best) {
+        if (best.size() == 0)
+            return false;
+        if (best.getBestScore() >= NEAR_EXACT_SCORE)
+            return true;
+        char[] text = query.getText();
+        char[] key = index.getKey(best.getBestId());
+        int nameStart = index.getNameStart(best.getBestId());
+        return Arrays.equals(text, 0, text.length, key, nameStart, key.length);
+    }
+
+    /**
+     * Scores the nodes ids[from] to ids[to - 1], which are sorted by length. Their upper bound is highest for nodes
+     * as long as the query, and decreases in both directions - so they are visited outwards from there.
+     */
+    private TopK score(SearchQuery query, int[] ids, int from, int to, Threshold threshold) {
+        TopK best = new TopK(MAX_RESULTS);
+        NeedlemanWunsch scorer = NeedlemanWunsch.get();
+        char[] text = query.getText();
+        boolean qualified = query.getType() != null;
+
+        // Binary search for the first node at least as long as the query
+        int high = from;
+        int end = to;
+        while (high < end) {
+            int middle = (high + end) >>> 1;
+            if (getScoredLength(ids[middle], qualified) < text.length)
+                high = middle + 1;
+            else
+                end = middle;
+        }
+        int low = high - 1;
+
+        while (low >= from || high < to) {
+            float lowBound = low >= from ? NeedlemanWunsch.upperBound(text.length, getScoredLength(ids[low], qualified)) : -1f;
+            float highBound = high < to ? NeedlemanWunsch.upperBound(text.length, getScoredLength(ids[high], qualified)) : -1f;
+            int id = lowBound >= highBound ? ids[low--] : ids[high++];
+            // No remaining node can beat the current 10th best score
+            if (Math.max(lowBound, highBound) < threshold.get())
+                break;
+
+            best.offer(id, scorer.similarity(text, index.getKey(id), qualified ? index.getNameStart(id) : 0));
+            threshold.raise(best.getThreshold());
+        }
+        return best;
+    }
+
+    /**
+     * @return The number of chars of the node's key a query is compared to.
+     */
+    private int getScoredLength(int id, boolean qualified) {
+        return index.getKey(id).length - (qualified ? index.getNameStart(id) : 0);
+    }
+
+    /** Scores the nodes ids[from] to ids[to - 1]. */
+    private class SearchTask extends RecursiveTask<TopK> {
+
+        private final SearchQuery query;
+        private final int[] ids;
+        private final int from;
+        private final int to;
+        private final Threshold threshold;
+
+        SearchTask(SearchQuery query, int[] ids, int from, int to, Threshold threshold) {
+            this.query = query;
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= LEAF_SIZE)
+                return score(query, ids, from, to, threshold);
+
+            int middle = (from + to) >>> 1;
+            SearchTask left = new SearchTask(query, ids, from, middle, threshold);
+            left.fork();
+            TopK right = new SearchTask(query, ids, middle, to, threshold).compute();
+            return right.merge(left.join());
+        }
+    }
+
+    /**
+     * The highest known 10th best score of a query, shared by all of its leaves. Any leaf's 10th best score is a lower
+     * bound for the overall one, so it only ever increases. Stored as float bits, which compare like the floats
+     * themselves as long as they aren't negative.
+     */
+    private static class Threshold {
+
+        private final AtomicInteger bits;
+
+        Threshold(float initial) {
+            bits = new AtomicInteger(Float.floatToIntBits(Math.max(0f, initial)));
+        }
+
+        float get() {
+            return Float.intBitsToFloat(bits.get());
+        }
+
+        void raise(float score) {
+            int scoreBits = Float.floatToIntBits(score);
+            if (score > 0f)
+                bits.accumulateAndGet(scoreBits, Math::max);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package me.mcofficer.james.tools.search;
+
+import me.mcofficer.james.gamedata.NodeView;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A bounded LRU cache of search results, keyed by game data version and normalized query.
+ * <p>
+ * Concurrent requests for the same key are coalesced: only the first one computes the result, the others wait for it.
+ * Since the key contains the data version, a cache can outlive the data it was filled from. Cached nodes keep their
+ * game data's snapshot mapped though, so {@link #retainVersion(String)} should be called whenever new data is
+ * published - it drops the entries of all other versions, and keeps them from being cached again.
+ */
+public class QueryCache {
+
+    private final Map<String, List<NodeView>> entries;
+    private final Map<String, CompletableFuture<List<NodeView>>> inFlight = new ConcurrentHashMap<>();
+    /** The only data version whose results are cached, or null to cache all of them. */
+    private String retainedVersion;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * @param maxSize The maximum number of cached queries.
+     */
+    public QueryCache(int maxSize) {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<NodeView>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /** Gets the cached results for query, or computes them.
+     * @param dataVersion The version of the data the results are computed from.
+     * @param query The raw query.
+     * @param search Computes the results on a miss.
+     * @return An unmodifiable List of Nodes.
+     */
+    public List<NodeView> get(String dataVersion, String query, Supplier<List<NodeView>> search) {
+        String key = dataVersion + '\0' + SearchIndex.normalize(query);
+        List<NodeView> cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        CompletableFuture<List<NodeView>> future = new CompletableFuture<>();
+        CompletableFuture<List<NodeView>> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return running.join();
+        }
+
+        misses.incrementAndGet();
+        try {
+            List<NodeView> results = Collections.unmodifiableList(search.get());
+            synchronized (entries) {
+                if (retainedVersion == null || retainedVersion.equals(dataVersion))
+                    entries.put(key, results);
+            }
+            future.complete(results);
+            return results;
+        }
+        catch (Throwable e) { // Errors too, so that coalesced requests never wait forever
+            future.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /** Drops the results of all data versions but dataVersion, and only caches results for it from now on.
+     * @param dataVersion The version of the data being published.
+     */
+    public void retainVersion(String dataVersion) {
+        String prefix = dataVersion + '\0';
+        synchronized (entries) {
+            retainedVersion = dataVersion;
+            entries.keySet().removeIf(key -> !key.startsWith(prefix));
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of requests that waited for an identical, already running search.
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueryCache[size=%d, hits=%d, misses=%d, coalesced=%d]",
+                size(), getHits(), getMisses(), getCoalesced());
+    }
+}
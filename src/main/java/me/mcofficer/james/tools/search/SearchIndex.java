@@ -0,0 +1,233 @@
+package me.mcofficer.james.tools.search;
+
+import me.mcofficer.james.gamedata.GameData;
+import me.mcofficer.james.gamedata.GameDataSnapshot;
+import me.mcofficer.james.gamedata.NodeView;
+
+import javax.annotation.CheckReturnValue;
+import java.util.*;
+
+/**
+ * An immutable index over the root nodes of the {@link GameData}, built once when {@link me.mcofficer.james.tools.Lookups}
+ * is constructed. Every node is addressed by its root id in the game data (its "id").
+ * It is built from the game data's snapshot only, and results are views into it.
+ * <p>
+ * Besides the normalized search key of every node (computed once, stored as a char[]), it holds a trigram inverted
+ * index, which maps every 3-character substring of the keys to the (ascending) ids of the nodes containing it.
+ * Queries use it to narrow the set of nodes that are worth scoring.
+ * <p>
+ * Additionally, nodes are partitioned by their type (their first token, e.g. "ship" or "outfit"),
+ * and the start of the name (the tokens after the type) within every key is recorded.
+ */
+public class SearchIndex {
+
+    /** The share of a query's trigrams a node has to contain to become a candidate. */
+    private final static float MIN_TRIGRAM_OVERLAP = 0.5f;
+
+    private final GameData gameData;
+    private final char[][] keys;
+    private final int[] nameStarts;
+    private final int[] partitionOf;
+    private final List<String> types = new ArrayList<>();
+    private final Map<String, Integer> typeIndices = new HashMap<>();
+    private final int[][] partitions;
+    private final Map<Long, int[]> postings;
+    /**
+     * Per-thread trigram hit counters, one per node, shared by all instances and grown when an index is bigger.
+     * Always reset to zeroes after use.
+     */
+    private final static ThreadLocal<int[]> hitCounters = ThreadLocal.withInitial(() -> new int[0]);
+
+    public SearchIndex(GameData gameData) {
+        this.gameData = gameData;
+        GameDataSnapshot snapshot = gameData.getSnapshot();
+        int size = gameData.getRootCount();
+
+        keys = new char[size][];
+        nameStarts = new int[size];
+        partitionOf = new int[size];
+        int[] partitionSizes = new int[size];
+        for (int i = 0; i < size; i++) {
+            String type = normalize(snapshot.getToken(i, 0));
+            keys[i] = normalize(String.join(" ", snapshot.getTokens(i))).toCharArray();
+            nameStarts[i] = Math.min(type.length() + 1, keys[i].length);
+            partitionOf[i] = typeIndices.computeIfAbsent(type, t -> {
+                types.add(t);
+                return types.size() - 1;
+            });
+            partitionSizes[partitionOf[i]]++;
+        }
+
+        partitions = new int[types.size()][];
+        for (int p = 0; p < partitions.length; p++) {
+            partitions[p] = new int[partitionSizes[p]];
+            partitionSizes[p] = 0;
+        }
+        for (int i = 0; i < size; i++)
+            partitions[partitionOf[i]][partitionSizes[partitionOf[i]]++] = i;
+        for (int[] partition : partitions)
+            sortByKeyLength(partition);
+
+        postings = buildPostings(keys);
+    }
+
+    /**
+     * Two passes over the keys: the first one counts the nodes per trigram, the second one fills exactly sized arrays.
+     * Ids are added in ascending order, so every postings list ends up sorted.
+     */
+    private static Map<Long, int[]> buildPostings(char[][] keys) {
+        Map<Long, int[]> counts = new HashMap<>();
+        for (char[] key : keys)
+            for (long trigram : getTrigrams(key))
+                counts.computeIfAbsent(trigram, t -> new int[1])[0]++;
+
+        Map<Long, int[]> postings = new HashMap<>(counts.size() * 2);
+        Map<Long, int[]> fill = new HashMap<>(counts.size() * 2);
+        counts.forEach((trigram, count) -> {
+            postings.put(trigram, new int[count[0]]);
+            count[0] = 0;
+            fill.put(trigram, count);
+        });
+        for (int id = 0; id < keys.length; id++)
+            for (long trigram : getTrigrams(keys[id]))
+                postings.get(trigram)[fill.get(trigram)[0]++] = id;
+        return postings;
+    }
+
+    /**
+     * Finds the ids of all nodes sharing at least {@link #MIN_TRIGRAM_OVERLAP} of the query's trigrams.
+     * @param query The normalized query.
+     * @return An ascending, possibly empty array of node ids. Empty if the query is too short to contain a trigram.
+     */
+    @CheckReturnValue
+    public int[] getCandidates(char[] query) {
+        long[] trigrams = getTrigrams(query);
+        if (trigrams.length == 0)
+            return new int[0];
+
+        int[] hits = hitCounters.get();
+        if (hits.length < keys.length) {
+            hits = new int[keys.length];
+            hitCounters.set(hits);
+        }
+        for (long trigram : trigrams) {
+            int[] ids = postings.get(trigram);
+            if (ids != null)
+                for (int id : ids)
+                    hits[id]++;
+        }
+
+        int minHits = Math.max(1, Math.round(trigrams.length * MIN_TRIGRAM_OVERLAP));
+        int count = 0;
+        for (int id = 0; id < keys.length; id++)
+            if (hits[id] >= minHits)
+                count++;
+        int[] candidates = new int[count];
+        for (int id = 0, i = 0; i < count; id++)
+            if (hits[id] >= minHits)
+                candidates[i++] = id;
+
+        for (long trigram : trigrams) {
+            int[] ids = postings.get(trigram);
+            if (ids != null)
+                for (int id : ids)
+                    hits[id] = 0;
+        }
+        return candidates;
+    }
+
+    /**
+     * Sorts node ids in place by the length of their key, then by id.
+     * Within a partition, that's the same order as sorting by the length of their names.
+     * @param ids
+     */
+    public void sortByKeyLength(int[] ids) {
+        long[] sortable = new long[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            sortable[i] = ((long) keys[ids[i]].length << 32) | ids[i];
+        Arrays.sort(sortable);
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = (int) sortable[i];
+    }
+
+    /**
+     * @param key A normalized key.
+     * @return The distinct trigrams of key, each packed into a long.
+     */
+    private static long[] getTrigrams(char[] key) {
+        if (key.length < 3)
+            return new long[0];
+        long[] trigrams = new long[key.length - 2];
+        for (int i = 0; i < trigrams.length; i++)
+            trigrams[i] = ((long) key[i] << 32) | ((long) key[i + 1] << 16) | key[i + 2];
+        return Arrays.stream(trigrams).distinct().toArray();
+    }
+
+    /**
+     * Brings a query or a node's tokens into the form used for indexing and scoring.
+     * @param s
+     * @return s, trimmed and lower-cased.
+     */
+    public static String normalize(String s) {
+        return s.trim().toLowerCase();
+    }
+
+    /**
+     * @param id
+     * @return The node, materialized by the game data if necessary.
+     */
+    public NodeView getNode(int id) {
+        return gameData.getNode(id);
+    }
+
+    /**
+     * @param id
+     * @return The node's normalized key. Do not modify it.
+     */
+    public char[] getKey(int id) {
+        return keys[id];
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @param id
+     * @return The index of the node's name within its key. Equals the key's length if the node has no name.
+     */
+    public int getNameStart(int id) {
+        return nameStarts[id];
+    }
+
+    /**
+     * @return The types of all nodes, in the order they first appear in. A type's position is its partition index.
+     */
+    public List<String> getTypes() {
+        return Collections.unmodifiableList(types);
+    }
+
+    /**
+     * @param type A normalized type, e.g. "ship".
+     * @return The type's partition index, or -1 if no node has that type.
+     */
+    public int getPartitionIndex(String type) {
+        return typeIndices.getOrDefault(type, -1);
+    }
+
+    /**
+     * @param id
+     * @return The partition index of the node's type.
+     */
+    public int getPartitionOf(int id) {
+        return partitionOf[id];
+    }
+
+    /**
+     * @param partition
+     * @return The ids of all nodes in that partition, sorted by {@link #sortByKeyLength(int[])}. Do not modify it.
+     */
+    public int[] getPartition(int partition) {
+        return partitions[partition];
+    }
+}
@@ -0,0 +1,63 @@
+package me.mcofficer.james.tools.search;
+
+import javax.annotation.CheckForNull;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A parsed search query. Queries may be restricted to a single node type by prefixing them with the type and a colon,
+ * e.g. {@code ship:Falcon} or {@code outfit:"Heavy Laser"}. Prefixes that aren't a known type are treated as
+ * part of an unqualified query.
+ */
+public class SearchQuery {
+
+    private final static Pattern TYPE_PREFIX = Pattern.compile("^\\s*([\\w-]+)\\s*:(.*)$", Pattern.DOTALL);
+
+    private final String type;
+    private final char[] text;
+
+    private SearchQuery(@CheckForNull String type, String text) {
+        this.type = type;
+        this.text = SearchIndex.normalize(text).toCharArray();
+    }
+
+    /**
+     * @param query The raw query.
+     * @param index The index providing the known types.
+     * @return The parsed query.
+     */
+    public static SearchQuery parse(String query, SearchIndex index) {
+        Matcher matcher = TYPE_PREFIX.matcher(query);
+        if (matcher.matches()) {
+            String type = SearchIndex.normalize(matcher.group(1));
+            if (index.getPartitionIndex(type) != -1)
+                return new SearchQuery(type, stripQuotes(matcher.group(2).trim()));
+        }
+        return new SearchQuery(null, query);
+    }
+
+    /** Removes a pair of surrounding quotes or backticks, as used in the data files.
+     * @param s
+     * @return
+     */
+    private static String stripQuotes(String s) {
+        if (s.length() >= 2 && (s.charAt(0) == '"' || s.charAt(0) == '`') && s.charAt(s.length() - 1) == s.charAt(0))
+            return s.substring(1, s.length() - 1);
+        return s;
+    }
+
+    /**
+     * @return The normalized type this query is restricted to, or null.
+     */
+    @CheckForNull
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return The normalized query text (without the type prefix). Do not modify it.
+     */
+    public char[] getText() {
+        return text;
+    }
+}
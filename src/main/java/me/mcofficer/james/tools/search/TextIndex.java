@@ -0,0 +1,337 @@
+package me.mcofficer.james.tools.search;
+
+import me.mcofficer.james.gamedata.GameData;
+import me.mcofficer.james.gamedata.GameDataSnapshot;
+import me.mcofficer.james.gamedata.NodeView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * A full-text index over the root nodes of the {@link GameData}, ranked by BM25.
+ * <p>
+ * Every root node is a document with two fields: its descriptions (the text of its "description" children), and all
+ * of its text (every token of every leaf in its subtree, which includes the descriptions). Text is split into words
+ * at everything but letters and digits and lowercased, without any stemming. Single characters and plain numbers are
+ * dropped.
+ * <p>
+ * The index consists of one segment per data file, holding the postings of that file's root nodes. A segment only
+ * depends on the content of its file, and files are identified by their content-addressed source path - so a
+ * {@link SegmentCache} shared between versions of the game data lets a reload reuse the segments of all unchanged
+ * files, and only index the changed ones. Collection statistics (document counts, frequencies, average lengths) are
+ * summed over the segments at query time.
+ */
+public class TextIndex {
+
+    private final static Logger log = LoggerFactory.getLogger(TextIndex.class);
+
+    /** The BM25 term frequency saturation. */
+    private final static float K1 = 1.2f;
+    /** The BM25 document length normalization. */
+    private final static float B = 0.75f;
+
+    private final static int DESCRIPTIONS = 0;
+    private final static int ALL_TEXT = 1;
+
+    private final GameData gameData;
+    private final Segment[] segments;
+    private final int[] segmentStarts;
+    private final int[] documentCounts = new int[2];
+    private final long[] totalLengths = new long[2];
+
+    /**
+     * @param gameData
+     * @param cache Provides the segments of files indexed before, and receives the new ones.
+     */
+    public TextIndex(GameData gameData, SegmentCache cache) {
+        this.gameData = gameData;
+        GameDataSnapshot snapshot = gameData.getSnapshot();
+        int fileCount = snapshot.getFileCount();
+        segments = new Segment[fileCount];
+        segmentStarts = new int[fileCount];
+        Map<String, Segment> cached = cache.get();
+        Map<String, Segment> current = new HashMap<>();
+        int indexed = 0;
+        for (int file = 0; file < fileCount; file++) {
+            String sourcePath = snapshot.getSourcePath(file);
+            Segment segment = cached.get(sourcePath);
+            if (segment == null) {
+                segment = new Segment(snapshot, file);
+                indexed++;
+            }
+            segments[file] = segment;
+            segmentStarts[file] = snapshot.getFileRootStart(file);
+            current.put(sourcePath, segment);
+            for (int field = 0; field < 2; field++) {
+                documentCounts[field] += segment.fields[field].documentCount;
+                totalLengths[field] += segment.fields[field].totalLength;
+            }
+        }
+        cache.set(current);
+        log.info(String.format("Indexed the text of %d of %d data files", indexed, fileCount));
+    }
+
+    /**
+     * Splits text into lowercase words.
+     * @param text
+     * @param words Receives the words.
+     */
+    static void tokenize(String text, Collection<String> words) {
+        int start = -1;
+        boolean letters = false;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (start == -1) {
+                    start = i;
+                    letters = false;
+                }
+                letters |= !Character.isDigit(c);
+            }
+            else if (start != -1) {
+                if (i - start > 1 && letters)
+                    words.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+    }
+
+    /** Ranks root nodes by how well their text matches the query's words. Nodes need to contain at least one of them.
+     * @param query The words to search for.
+     * @param type Only ranks root nodes of this (normalized) type, or all if null.
+     * @param allText Whether to search all of a node's text, instead of only its descriptions.
+     * @param limit The maximum number of results.
+     * @return A possibly empty List of root Nodes, best match first.
+     */
+    @CheckReturnValue
+    public List<NodeView> search(String query, @Nullable String type, boolean allText, int limit) {
+        int field = allText ? ALL_TEXT : DESCRIPTIONS;
+        Set<String> words = new LinkedHashSet<>();
+        tokenize(query, words);
+        if (words.isEmpty() || documentCounts[field] == 0)
+            return Collections.emptyList();
+
+        float averageLength = (float) totalLengths[field] / documentCounts[field];
+        float[] scores = new float[gameData.getRootCount()];
+        for (String word : words) {
+            int frequency = 0;
+            for (Segment segment : segments)
+                frequency += segment.fields[field].getDocumentFrequency(word);
+            if (frequency == 0)
+                continue;
+            // The BM25 idf, shifted to stay positive for words in more than half of the documents
+            float idf = (float) Math.log(1 + (documentCounts[field] - frequency + 0.5) / (frequency + 0.5));
+            for (int s = 0; s < segments.length; s++)
+                segments[s].fields[field].score(word, idf, averageLength, segmentStarts[s], scores);
+        }
+
+        TopK topK = new TopK(limit);
+        GameDataSnapshot snapshot = gameData.getSnapshot();
+        for (int id = 0; id < scores.length; id++)
+            if (scores[id] > 0 && (type == null || SearchIndex.normalize(snapshot.getToken(id, 0)).equals(type)))
+                topK.offer(id, scores[id]);
+        List<NodeView> results = new ArrayList<>(topK.size());
+        for (int id : topK.toSortedIds())
+            results.add(gameData.getNode(id));
+        return results;
+    }
+
+    /**
+     * Keeps the segments of the most recently indexed version of the game data, keyed by source path. May be shared by
+     * the TextIndexes of several versions.
+     */
+    public static class SegmentCache {
+
+        private volatile Map<String, Segment> segments = Collections.emptyMap();
+
+        private Map<String, Segment> get() {
+            return segments;
+        }
+
+        private void set(Map<String, Segment> segments) {
+            this.segments = segments;
+        }
+    }
+
+    /** The postings of the root nodes of one data file. Documents are numbered from 0, in file order. */
+    private static class Segment {
+
+        private final Field[] fields = new Field[2];
+
+        private Segment(GameDataSnapshot snapshot, int file) {
+            int start = snapshot.getFileRootStart(file);
+            int end = snapshot.getFileRootStart(file + 1);
+            FieldBuilder descriptions = new FieldBuilder(end - start);
+            FieldBuilder allText = new FieldBuilder(end - start);
+            List<String> words = new ArrayList<>();
+            ArrayDeque<Integer> stack = new ArrayDeque<>();
+            for (int root = start; root < end; root++) {
+                int firstChild = snapshot.getFirstChild(root);
+                for (int child = firstChild; child < firstChild + snapshot.getChildCount(root); child++)
+                    if (snapshot.getToken(child, 0).equals("description"))
+                        for (int i = 1; i < snapshot.getTokenCount(child); i++)
+                            tokenize(snapshot.getToken(child, i), words);
+                descriptions.add(root - start, words);
+                words.clear();
+
+                stack.push(root);
+                while (!stack.isEmpty()) {
+                    int node = stack.pop();
+                    if (snapshot.getChildCount(node) == 0)
+                        for (int i = 0; i < snapshot.getTokenCount(node); i++)
+                            tokenize(snapshot.getToken(node, i), words);
+                    int first = snapshot.getFirstChild(node);
+                    for (int child = first + snapshot.getChildCount(node) - 1; child >= first; child--)
+                        stack.push(child);
+                }
+                allText.add(root - start, words);
+                words.clear();
+            }
+            fields[DESCRIPTIONS] = descriptions.build();
+            fields[ALL_TEXT] = allText.build();
+        }
+    }
+
+    /**
+     * The postings of one field of a segment. The postings of all words are stored back to back in a single byte
+     * array, every posting as the varint-encoded gap to the previous document and the word's frequency in it.
+     */
+    private static class Field {
+
+        private final Map<String, Integer> wordIds;
+        private final int[] postingsStarts;
+        private final int[] documentFrequencies;
+        private final byte[] postings;
+        private final int[] lengths;
+        private final int documentCount;
+        private final long totalLength;
+
+        private Field(Map<String, Integer> wordIds, int[] postingsStarts, int[] documentFrequencies, byte[] postings,
+                      int[] lengths) {
+            this.wordIds = wordIds;
+            this.postingsStarts = postingsStarts;
+            this.documentFrequencies = documentFrequencies;
+            this.postings = postings;
+            this.lengths = lengths;
+            int documentCount = 0;
+            long totalLength = 0;
+            for (int length : lengths) {
+                if (length > 0)
+                    documentCount++;
+                totalLength += length;
+            }
+            this.documentCount = documentCount;
+            this.totalLength = totalLength;
+        }
+
+        private int getDocumentFrequency(String word) {
+            Integer wordId = wordIds.get(word);
+            return wordId == null ? 0 : documentFrequencies[wordId];
+        }
+
+        /** Adds the BM25 score of word to the scores of all documents containing it.
+         * @param offset The id of the segment's first root node.
+         */
+        private void score(String word, float idf, float averageLength, int offset, float[] scores) {
+            Integer wordId = wordIds.get(word);
+            if (wordId == null)
+                return;
+            int position = postingsStarts[wordId];
+            int end = postingsStarts[wordId + 1];
+            int document = 0;
+            while (position < end) {
+                int gap = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = postings[position++];
+                    gap |= (b & 0x7f) << shift;
+                    if (b >= 0)
+                        break;
+                }
+                int frequency = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = postings[position++];
+                    frequency |= (b & 0x7f) << shift;
+                    if (b >= 0)
+                        break;
+                }
+                document += gap;
+                float norm = K1 * (1 - B + B * lengths[document] / averageLength);
+                scores[offset + document] += idf * frequency * (K1 + 1) / (frequency + norm);
+            }
+        }
+    }
+
+    /** Collects the postings of a field, document by document in ascending order. */
+    private static class FieldBuilder {
+
+        private final Map<String, Integer> wordIds = new HashMap<>();
+        private final int[] lengths;
+        /** (word id, document, frequency) triples, in the order they were added. */
+        private int[] triples = new int[192];
+        private int tripleCount = 0;
+
+        private FieldBuilder(int documentCount) {
+            lengths = new int[documentCount];
+        }
+
+        private void add(int document, List<String> words) {
+            lengths[document] = words.size();
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String word : words)
+                frequencies.merge(word, 1, Integer::sum);
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                if (tripleCount * 3 == triples.length)
+                    triples = Arrays.copyOf(triples, triples.length * 2);
+                triples[tripleCount * 3] = wordIds.computeIfAbsent(entry.getKey(), w -> wordIds.size());
+                triples[tripleCount * 3 + 1] = document;
+                triples[tripleCount * 3 + 2] = entry.getValue();
+                tripleCount++;
+            }
+        }
+
+        /** Groups the triples by word with a counting sort, which keeps the documents of every word ascending. */
+        private Field build() {
+            int wordCount = wordIds.size();
+            int[] documentFrequencies = new int[wordCount];
+            for (int t = 0; t < tripleCount; t++)
+                documentFrequencies[triples[t * 3]]++;
+            int[] order = new int[tripleCount];
+            int[] next = new int[wordCount + 1];
+            for (int w = 0; w < wordCount; w++)
+                next[w + 1] = next[w] + documentFrequencies[w];
+            for (int t = 0; t < tripleCount; t++)
+                order[next[triples[t * 3]]++] = t;
+
+            byte[] postings = new byte[tripleCount * 4];
+            int[] postingsStarts = new int[wordCount + 1];
+            int size = 0;
+            int o = 0;
+            for (int w = 0; w < wordCount; w++) {
+                postingsStarts[w] = size;
+                int previous = 0;
+                for (int i = 0; i < documentFrequencies[w]; i++) {
+                    int t = order[o++];
+                    if (postings.length - size < 10)
+                        postings = Arrays.copyOf(postings, Math.max(postings.length * 2, size + 10));
+                    size = writeVarint(postings, size, triples[t * 3 + 1] - previous);
+                    size = writeVarint(postings, size, triples[t * 3 + 2]);
+                    previous = triples[t * 3 + 1];
+                }
+            }
+            postingsStarts[wordCount] = size;
+            return new Field(wordIds, postingsStarts, documentFrequencies, Arrays.copyOf(postings, size), lengths);
+        }
+
+        private static int writeVarint(byte[] bytes, int position, int value) {
+            while ((value & ~0x7f) != 0) {
+                bytes[position++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[position++] = (byte) value;
+            return position;
+        }
+    }
+}
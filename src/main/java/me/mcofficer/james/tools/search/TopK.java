@@ -0,0 +1,143 @@
+package me.mcofficer.james.tools.search;
+
+/**
+ * A bounded collection of the best scored node ids, backed by a fixed-size min-heap.
+ * The worst retained entry sits at the root, so offering a node costs O(log k) and never allocates.
+ * Equal scores are ordered by id, which keeps results deterministic no matter how the work was split.
+ */
+public class TopK {
+
+    private final int[] ids;
+    private final float[] scores;
+    private int size = 0;
+
+    public TopK(int capacity) {
+        ids = new int[capacity];
+        scores = new float[capacity];
+    }
+
+    /** Adds a node if it is better than the worst retained one (or if there is still room).
+     * @param id
+     * @param score
+     */
+    public void offer(int id, float score) {
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        }
+        else if (isWorse(ids[0], scores[0], id, score)) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /** Offers all entries of another TopK to this one.
+     * @param other
+     * @return this
+     */
+    public TopK merge(TopK other) {
+        for (int i = 0; i < other.size; i++)
+            offer(other.ids[i], other.scores[i]);
+        return this;
+    }
+
+    /**
+     * @return The ids in descending order of their scores.
+     */
+    public int[] toSortedIds() {
+        int[] sortedIds = new int[size];
+        TopK copy = new TopK(ids.clone(), scores.clone(), size);
+        for (int i = size - 1; i >= 0; i--)
+            sortedIds[i] = copy.poll();
+        return sortedIds;
+    }
+
+    private TopK(int[] ids, float[] scores, int size) {
+        this.ids = ids;
+        this.scores = scores;
+        this.size = size;
+    }
+
+    /** Removes the worst entry.
+     * @return its id.
+     */
+    private int poll() {
+        int id = ids[0];
+        size--;
+        ids[0] = ids[size];
+        scores[0] = scores[size];
+        siftDown(0);
+        return id;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The score a node has to beat to get in (or tie with a higher id), or
+     * {@link Float#NEGATIVE_INFINITY} if this isn't full yet.
+     */
+    public float getThreshold() {
+        return size < ids.length ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * @return The id of the best entry, or -1 if this is empty.
+     */
+    public int getBestId() {
+        int best = -1;
+        for (int i = 0; i < size; i++)
+            if (best == -1 || isWorse(ids[best], scores[best], ids[i], scores[i]))
+                best = i;
+        return best == -1 ? -1 : ids[best];
+    }
+
+    /**
+     * @return The score of the best entry, or {@link Float#NEGATIVE_INFINITY} if this is empty.
+     */
+    public float getBestScore() {
+        float best = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++)
+            best = Math.max(best, scores[i]);
+        return best;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!isWorse(ids[i], scores[i], ids[parent], scores[parent]))
+                return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int worst = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++)
+                if (isWorse(ids[child], scores[child], ids[worst], scores[worst]))
+                    worst = child;
+            if (worst == i)
+                return;
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    private static boolean isWorse(int idA, float scoreA, int idB, float scoreB) {
+        return scoreA < scoreB || (scoreA == scoreB && idA > idB);
+    }
+}